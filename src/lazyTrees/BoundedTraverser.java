@@ -0,0 +1,13 @@
+package lazyTrees;
+
+/**
+ * Traverser for range traversals that can stop early
+ * @author Myron Pow
+ */
+public interface BoundedTraverser<E> {
+    /**
+     * @param x datum being visited
+     * @return false to stop the traversal after this datum
+     */
+    public boolean visit(E x);
+}
@@ -0,0 +1,416 @@
+package lazyTrees;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Inventories of many stores with chain-wide views. Aggregate queries
+ * k-way merge the sorted per-store traversals: every store is read through
+ * a RangeCursor one page at a time, the next page of each store is fetched
+ * in parallel while the current one is merged, and counts are summed as
+ * equal items meet at the head of the merge. No merged copy is built.
+ * Every page and lookup is read through the store's SuperMarket under its
+ * lock, so queries may run while registers or idle collectors update the
+ * stores; a query then sees each store page by page, not as one snapshot.
+ * @author Myron Pow
+ */
+public class ChainInventory {
+    public static final int DEFAULT_PAGE_SIZE = 256;
+
+    private final Map<String, SuperMarket> stores = new LinkedHashMap<String, SuperMarket>();
+    private final int pageSize;
+    private ExecutorService executor;
+
+    /**
+     * Creates an empty chain
+     */
+    public ChainInventory() {
+        this(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param pageSize items fetched from a store at a time
+     */
+    public ChainInventory(int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException();
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Adds a store to the chain
+     * @param name store name
+     * @param market the store's inventory
+     */
+    public void addStore(String name, SuperMarket market) {
+        stores.put(name, market);
+    }
+
+    /**
+     * @param name store name
+     * @return the store, or null
+     */
+    public SuperMarket getStore(String name) {
+        return stores.get(name);
+    }
+
+    /**
+     * @return number of stores
+     */
+    public int size() {
+        return stores.size();
+    }
+
+    /**
+     * Stops the worker threads, they are restarted by the next query
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Stock of one item summed over all stores
+     * @param item item name
+     * @return total count
+     */
+    public int totalStock(String item) {
+        int total = 0;
+        for (SuperMarket market : stores.values())
+            total += market.stockOf(item);
+        return total;
+    }
+
+    /**
+     * Visits every item in stock anywhere, in lexical order, with its total
+     * count over the chain
+     * @param func visitor, returns false to stop
+     * @return number of items visited
+     */
+    public int traverseTotals(AggregateTraverser func) {
+        return merge(func);
+    }
+
+    /**
+     * Visits every item some store has ever stocked whose count is zero in
+     * every store, in lexical order. Stores remember the names they stocked
+     * apart from their trees, so the result does not depend on whether
+     * garbage collection has run.
+     * @param func functor to call on each item name
+     * @return number of items visited
+     */
+    public int traverseOutOfStock(final Traverser<? super String> func) {
+        final StockedNames known = new StockedNames(stores.values());
+        final int[] visited = {0};
+        merge(new AggregateTraverser() {
+            public boolean visit(String name, int totalCount, int storeCount) {
+                // known names before the next item in stock have run out
+                while (known.peek() != null
+                        && String.CASE_INSENSITIVE_ORDER.compare(known.peek(), name) < 0) {
+                    func.visit(known.next());
+                    visited[0]++;
+                }
+                if (known.peek() != null
+                        && String.CASE_INSENSITIVE_ORDER.compare(known.peek(), name) == 0)
+                    known.next();
+                return true;
+            }
+        });
+        while (known.peek() != null) {
+            func.visit(known.next());
+            visited[0]++;
+        }
+        return visited[0];
+    }
+
+    /**
+     * Smallest item in stock anywhere in the chain
+     * @return item name
+     */
+    public String findMin() {
+        return findExtreme(true);
+    }
+
+    /**
+     * Largest item in stock anywhere in the chain
+     * @return item name
+     */
+    public String findMax() {
+        return findExtreme(false);
+    }
+
+    // private helper methods ----------------------------------------
+
+    /**
+     * Streaming k-way merge of the stores' sorted traversals
+     * @param func receives each distinct item in stock with its summed count
+     * @return number of items visited
+     */
+    private int merge(AggregateTraverser func) {
+        ExecutorService workers = executor();
+        PriorityQueue<StoreStream> heads = new PriorityQueue<StoreStream>();
+        List<StoreStream> streams = new ArrayList<StoreStream>();
+        for (SuperMarket market : stores.values())
+            streams.add(new StoreStream(market, workers));
+        for (StoreStream stream : streams)
+            if (stream.advance())
+                heads.add(stream);
+
+        int visited = 0;
+        List<StoreStream> equal = new ArrayList<StoreStream>();
+        while (!heads.isEmpty()) {
+            StoreStream first = heads.poll();
+            Item head = first.head();
+            int total = first.headCount();
+            equal.add(first);
+            while (!heads.isEmpty() && heads.peek().head().compareTo(head) == 0) {
+                StoreStream next = heads.poll();
+                total += next.headCount();
+                equal.add(next);
+            }
+
+            visited++;
+            boolean more = func.visit(head.getName(), total, equal.size());
+            for (StoreStream stream : equal)
+                if (more && stream.advance())
+                    heads.add(stream);
+                else
+                    stream.close();
+            equal.clear();
+            if (!more)
+                break;
+        }
+        for (StoreStream stream : heads)
+            stream.close();
+        return visited;
+    }
+
+    /**
+     * Asks every store for its min or max in parallel
+     */
+    private String findExtreme(final boolean min) {
+        ExecutorService workers = executor();
+        List<Future<Item>> results = new ArrayList<Future<Item>>();
+        for (final SuperMarket market : stores.values()) {
+            results.add(workers.submit(new Callable<Item>() {
+                public Item call() {
+                    return market.firstOrLastItem(min);
+                }
+            }));
+        }
+
+        Item best = null;
+        for (Future<Item> result : results) {
+            Item item = get(result);
+            if (item != null && (best == null
+                    || (min ? item.compareTo(best) < 0 : item.compareTo(best) > 0)))
+                best = item;
+        }
+        if (best == null)
+            throw new NoSuchElementException();
+        return best.getName();
+    }
+
+    /**
+     * Cached pool, so stores added after the first query get their own
+     * workers; idle threads die off after a minute
+     */
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "chain-inventory");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return executor;
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Receives chain-wide totals of one item
+     */
+    public interface AggregateTraverser {
+        /**
+         * @param name item name
+         * @param totalCount count summed over the stores holding the item
+         * @param storeCount number of stores holding the item
+         * @return false to stop
+         */
+        boolean visit(String name, int totalCount, int storeCount);
+    }
+
+    /**
+     * Sorted view of one store, read page by page with the next page
+     * fetched in the background
+     */
+    private class StoreStream implements Comparable<StoreStream> {
+        private final SuperMarket market;
+        private final ExecutorService workers;
+        private final RangeCursor<Item> cursor = new RangeCursor<Item>();
+        private Page page = new Page(0);
+        private int position = -1;
+        private Future<Page> pending;
+
+        StoreStream(SuperMarket market, ExecutorService workers) {
+            this.market = market;
+            this.workers = workers;
+            pending = workers.submit(new PageFetch());
+        }
+
+        Item head() {
+            return page.items.get(position);
+        }
+
+        /**
+         * @return count of the head item when its page was read
+         */
+        int headCount() {
+            return page.counts[position];
+        }
+
+        /**
+         * Moves to the next item, waiting for the prefetched page if needed
+         * @return false once the store is exhausted
+         */
+        boolean advance() {
+            position++;
+            while (position >= page.items.size()) {
+                if (pending == null)
+                    return false;
+
+                page = get(pending);
+                position = 0;
+                // only one fetch per store at a time, it owns the cursor
+                pending = cursor.hasMore() ? workers.submit(new PageFetch()) : null;
+            }
+            return true;
+        }
+
+        void close() {
+            if (pending != null)
+                pending.cancel(false);
+            pending = null;
+        }
+
+        public int compareTo(StoreStream other) {
+            return head().compareTo(other.head());
+        }
+
+        private class PageFetch implements Callable<Page> {
+            public Page call() {
+                final Page fetched = new Page(pageSize);
+                BoundedTraverser<Item> collect = new BoundedTraverser<Item>() {
+                    public boolean visit(Item x) {
+                        int count = x.getCount();
+                        // a soft item at 0 is being sold out or not counted yet
+                        if (count > 0) {
+                            fetched.counts[fetched.items.size()] = count;
+                            fetched.items.add(x);
+                        }
+                        return true;
+                    }
+                };
+                market.nextPage(cursor, collect, pageSize);
+                return fetched;
+            }
+        }
+    }
+
+    /**
+     * Items of one page with their counts as read under the store's lock,
+     * so later sales do not change a page already fetched
+     */
+    private static class Page {
+        final List<Item> items;
+        final int[] counts;
+
+        Page(int size) {
+            items = new ArrayList<Item>(size);
+            counts = new int[size];
+        }
+    }
+
+    /**
+     * Distinct names stocked by any of the stores, merged from their sorted
+     * name sets in Item order
+     */
+    private static class StockedNames {
+        private final PriorityQueue<NameStream> heads = new PriorityQueue<NameStream>();
+
+        StockedNames(Collection<SuperMarket> markets) {
+            for (SuperMarket market : markets) {
+                NameStream stream = new NameStream(market.getStockedNames().iterator());
+                if (stream.head != null)
+                    heads.add(stream);
+            }
+        }
+
+        /**
+         * @return next name, null once all are visited
+         */
+        String peek() {
+            return heads.isEmpty() ? null : heads.peek().head;
+        }
+
+        /**
+         * @return next name, skipping it in every store that has it
+         */
+        String next() {
+            String name = peek();
+            while (!heads.isEmpty()
+                    && String.CASE_INSENSITIVE_ORDER.compare(heads.peek().head, name) == 0) {
+                NameStream stream = heads.poll();
+                if (stream.advance())
+                    heads.add(stream);
+            }
+            return name;
+        }
+    }
+
+    private static class NameStream implements Comparable<NameStream> {
+        private final Iterator<String> names;
+        private String head;
+
+        NameStream(Iterator<String> names) {
+            this.names = names;
+            advance();
+        }
+
+        boolean advance() {
+            head = names.hasNext() ? names.next() : null;
+            return head != null;
+        }
+
+        public int compareTo(NameStream other) {
+            return String.CASE_INSENSITIVE_ORDER.compare(head, other.head);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package lazyTrees;
+
+/**
+ * Decides when a lazy store should be garbage collected.
+ * The built-in policies are nested below; parse() builds one from a
+ * short spec such as "fixed:4", "ratio:0.25", "cost" or "idle:500".
+ * @author Myron Pow
+ */
+public interface CollectionPolicy {
+
+    /**
+     * @param stats current state of the store
+     * @return true to collect now
+     */
+    boolean shouldCollect(CollectionStats stats);
+
+    /**
+     * Builds a policy from a spec
+     * @param spec fixed:n, ratio:r, cost[:factor] or idle:ms
+     * @return the policy
+     */
+    public static CollectionPolicy parse(String spec) {
+        String[] parts = spec.split(":");
+        String name = parts[0];
+        boolean hasArg = parts.length > 1;
+        if (name.equals("fixed"))
+            return new FixedCount(hasArg ? Integer.parseInt(parts[1]) : 4);
+        if (name.equals("ratio"))
+            return new TombstoneRatio(hasArg ? Double.parseDouble(parts[1]) : 0.25);
+        if (name.equals("cost"))
+            return new CostModel(hasArg ? Double.parseDouble(parts[1]) : 1.0);
+        if (name.equals("idle"))
+            return new Idle(hasArg ? Long.parseLong(parts[1]) : 1000, new CostModel(1.0));
+        throw new IllegalArgumentException("unknown collection policy: " + spec);
+    }
+
+    /**
+     * Collects after a fixed number of lazy deletions
+     */
+    public static class FixedCount implements CollectionPolicy {
+        private final int threshold;
+
+        public FixedCount(int threshold) {
+            this.threshold = threshold;
+        }
+
+        public boolean shouldCollect(CollectionStats stats) {
+            return stats.deletions >= threshold;
+        }
+
+        public String toString() {
+            return "fixed:" + threshold;
+        }
+    }
+
+    /**
+     * Collects once "deleted" entries make up a fraction of the store
+     */
+    public static class TombstoneRatio implements CollectionPolicy {
+        private final double ratio;
+
+        public TombstoneRatio(double ratio) {
+            this.ratio = ratio;
+        }
+
+        public boolean shouldCollect(CollectionStats stats) {
+            return stats.tombstones() > 0 && stats.tombstoneRatio() >= ratio;
+        }
+
+        public String toString() {
+            return "ratio:" + ratio;
+        }
+    }
+
+    /**
+     * Amortized cost model: collects once the extra search steps lookups
+     * have spent on "deleted" entries exceed factor times the cost of a
+     * collection, which visits every hard entry. Paying for compaction
+     * only after the waste matches it keeps the total within twice the
+     * best schedule. Tombstones that lookups never hit cost memory only,
+     * so they are collected once they make up half of the store.
+     */
+    public static class CostModel implements CollectionPolicy {
+        private static final double MAX_TOMBSTONE_RATIO = 0.5;
+        private final double factor;
+
+        public CostModel(double factor) {
+            this.factor = factor;
+        }
+
+        public boolean shouldCollect(CollectionStats stats) {
+            if (stats.tombstones() == 0)
+                return false;
+            return stats.deadComparisons >= factor * stats.sizeHard
+                    || stats.tombstoneRatio() >= MAX_TOMBSTONE_RATIO;
+        }
+
+        public String toString() {
+            return "cost:" + factor;
+        }
+    }
+
+    /**
+     * Collects whenever the store has been idle long enough and holds any
+     * "deleted" entry; while busy it defers to another policy. Idle time is
+     * only seen by periodic checks, e.g. SuperMarket.startIdleCollector()
+     */
+    public static class Idle implements CollectionPolicy {
+        private final long idleMillis;
+        private final CollectionPolicy busy;
+
+        public Idle(long idleMillis, CollectionPolicy busy) {
+            this.idleMillis = idleMillis;
+            this.busy = busy;
+        }
+
+        public boolean shouldCollect(CollectionStats stats) {
+            if (stats.tombstones() > 0 && stats.idleMillis >= idleMillis)
+                return true;
+            return busy.shouldCollect(stats);
+        }
+
+        public String toString() {
+            return "idle:" + idleMillis + "+" + busy;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package lazyTrees;
+
+/**
+ * Snapshot of a lazy store and its traffic since the last garbage
+ * collection, handed to a CollectionPolicy
+ * @author Myron Pow
+ */
+public class CollectionStats {
+    public final int size;
+    public final int sizeHard;
+    public final long deletions;
+    public final long operations;
+    public final long deadComparisons;
+    public final long idleMillis;
+    public final long lastCollectionNanos;
+    public final int lastCollectionSizeHard;
+
+    /**
+     * @param size soft size of the store
+     * @param sizeHard hard size of the store
+     * @param deletions lazy deletions since the last collection
+     * @param operations inventory operations since the last collection
+     * @param deadComparisons search steps on "deleted" entries since the last collection
+     * @param idleMillis time since the last inventory operation, 0 right after one
+     * @param lastCollectionNanos duration of the last collection, 0 if none yet
+     * @param lastCollectionSizeHard hard size the last collection started with
+     */
+    public CollectionStats(int size, int sizeHard, long deletions, long operations,
+                           long deadComparisons, long idleMillis,
+                           long lastCollectionNanos, int lastCollectionSizeHard) {
+        this.size = size;
+        this.sizeHard = sizeHard;
+        this.deletions = deletions;
+        this.operations = operations;
+        this.deadComparisons = deadComparisons;
+        this.idleMillis = idleMillis;
+        this.lastCollectionNanos = lastCollectionNanos;
+        this.lastCollectionSizeHard = lastCollectionSizeHard;
+    }
+
+    /**
+     * @return entries that are "deleted" but not yet collected
+     */
+    public int tombstones() {
+        return sizeHard - size;
+    }
+
+    /**
+     * @return fraction of hard entries that are "deleted"
+     */
+    public double tombstoneRatio() {
+        return (sizeHard == 0) ? 0 : (double) tombstones() / sizeHard;
+    }
+
+    public String toString() {
+        return String.format("size=%d hard=%d tombstones=%d deletions=%d ops=%d "
+                        + "deadComparisons=%d idleMs=%d",
+                size, sizeHard, tombstones(), deletions, operations,
+                deadComparisons, idleMillis);
+    }
+}
@@ -0,0 +1,543 @@
+package lazyTrees;
+
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free skip list with the same soft/hard model as LazySearchTree.
+ * remove() only marks a node "deleted"; insert() revives it. Physical
+ * unlinking is done by collectGarbage() or by a background collector.
+ * Link structure follows the Herlihy/Shavit lock-free skip list.
+ * @author Myron Pow
+ */
+public class ConcurrentLazySkipList<E extends Comparable< ? super E > >
+        implements ConcurrentLazyStore<E> {
+    protected static final int MAX_LEVEL = 32;
+
+    // node states, a node only ever moves LIVE <-> DELETED -> DEAD
+    protected static final int LIVE = 0;
+    protected static final int DELETED = 1;
+    protected static final int DEAD = 2;
+
+    protected final AtomicInteger mSize = new AtomicInteger();
+    protected final AtomicInteger mSizeHard = new AtomicInteger();
+    protected volatile int mTopLevel;
+    protected volatile SkipNode<E> mHead;
+    protected final LongAdder mDeadComparisons = new LongAdder();
+
+    private ScheduledExecutorService collector;
+
+    /**
+     * Creates empty skip list
+     */
+    public ConcurrentLazySkipList() {
+        clear();
+    }
+
+    public boolean empty() {
+        return (mSize.get() == 0);
+    }
+
+    public int size() {
+        return mSize.get();
+    }
+
+    public int sizeHard() {
+        return mSizeHard.get();
+    }
+
+    public long deadComparisons() {
+        return mDeadComparisons.sum();
+    }
+
+    /**
+     * Clears list to default values, not safe against concurrent writers
+     */
+    public void clear() {
+        mHead = new SkipNode<E>(null, MAX_LEVEL - 1);
+        mSize.set(0);
+        mSizeHard.set(0);
+        mTopLevel = -1;
+        mDeadComparisons.reset();
+    }
+
+    /**
+     * Highest level that has been used by a node
+     * @return top level, -1 when empty
+     */
+    public int showHeight() {
+        return (mSizeHard.get() == 0) ? -1 : mTopLevel;
+    }
+
+    public E findMin() {
+        for (SkipNode<E> curr = first(); curr != null; curr = next(curr))
+            if (curr.state == LIVE)
+                return curr.data;
+        throw new NoSuchElementException();
+    }
+
+    public E findMinHard() {
+        for (SkipNode<E> curr = first(); curr != null; curr = next(curr))
+            if (curr.state != DEAD)
+                return curr.data;
+        throw new NoSuchElementException();
+    }
+
+    public E findMax() {
+        SkipNode<E> last = last();
+        if (last != null && last.state == LIVE)
+            return last.data;
+
+        // tail is "deleted", fall back to scanning the bottom level
+        SkipNode<E> result = null;
+        for (SkipNode<E> curr = first(); curr != null; curr = next(curr))
+            if (curr.state == LIVE)
+                result = curr;
+        if (result == null)
+            throw new NoSuchElementException();
+        return result.data;
+    }
+
+    public E findMaxHard() {
+        SkipNode<E> last = last();
+        if (last != null && last.state != DEAD)
+            return last.data;
+
+        SkipNode<E> result = null;
+        for (SkipNode<E> curr = first(); curr != null; curr = next(curr))
+            if (curr.state != DEAD)
+                result = curr;
+        if (result == null)
+            throw new NoSuchElementException();
+        return result.data;
+    }
+
+    public E find(E x) {
+        SkipNode<E> node = findNode(x);
+        if (node == null || node.state != LIVE)
+            throw new NoSuchElementException();
+        return node.data;
+    }
+
+    public boolean contains(E x) {
+        SkipNode<E> node = findNode(x);
+        return node != null && node.state == LIVE;
+    }
+
+    /**
+     * Inserts x, reviving a "deleted" node holding an equal value
+     * @param x datum to add
+     * @return true if the soft size changed
+     */
+    public boolean insert(E x) {
+        SkipNode<E>[] preds = newNodeArray();
+        SkipNode<E>[] succs = newNodeArray();
+
+        while (true) {
+            if (find(x, preds, succs)) {
+                SkipNode<E> node = succs[0];
+                int state = node.state;
+                if (state == LIVE)
+                    return false;
+                if (state == DELETED) {
+                    if (STATE.compareAndSet(node, DELETED, LIVE)) {
+                        mSize.incrementAndGet();
+                        return true;
+                    }
+                    continue;
+                }
+                // DEAD: finish its unlinking, then insert a fresh node
+                markLinks(node);
+                continue;
+            }
+
+            int topLevel = randomLevel();
+            SkipNode<E> node = new SkipNode<E>(x, topLevel);
+            for (int level = 0; level <= topLevel; level++)
+                node.next[level].set(succs[level], false);
+
+            if (!preds[0].next[0].compareAndSet(succs[0], node, false, false))
+                continue;
+            mSizeHard.incrementAndGet();
+            mSize.incrementAndGet();
+
+            for (int level = 1; level <= topLevel; level++) {
+                while (true) {
+                    if (preds[level].next[level].compareAndSet(succs[level], node, false, false))
+                        break;
+                    find(x, preds, succs);
+                    if (succs[0] != node)
+                        return true;    // unlinked again before fully linked
+                    if (!node.next[level].compareAndSet(node.next[level].getReference(),
+                            succs[level], false, false))
+                        return true;    // marked by a collector
+                }
+            }
+            raiseTopLevel(topLevel);
+            return true;
+        }
+    }
+
+    /**
+     * Lazily removes x by marking its node "deleted"
+     * @param x datum to remove
+     * @return true if the soft size changed
+     */
+    public boolean remove(E x) {
+        SkipNode<E> node = findNode(x);
+        if (node != null && STATE.compareAndSet(node, LIVE, DELETED)) {
+            mSize.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Physically removes x whether or not it was "deleted"
+     * @param x datum to remove
+     * @return true if a node was unlinked
+     */
+    public boolean removeHard(E x) {
+        while (true) {
+            SkipNode<E> node = findNode(x);
+            if (node == null)
+                return false;
+            int state = node.state;
+            if (state == DEAD)
+                return false;
+            if (STATE.compareAndSet(node, state, DEAD)) {
+                if (state == LIVE)
+                    mSize.decrementAndGet();
+                unlink(node);
+                return true;
+            }
+        }
+    }
+
+    public <F extends Traverser<? super E>>
+    void traverseSoft(F func) {
+        for (SkipNode<E> curr = first(); curr != null; curr = next(curr))
+            if (curr.state == LIVE)
+                func.visit(curr.data);
+    }
+
+    public <F extends Traverser<? super E>>
+    void traverseHard(F func) {
+        for (SkipNode<E> curr = first(); curr != null; curr = next(curr))
+            if (curr.state != DEAD)
+                func.visit(curr.data);
+    }
+
+    public <F extends BoundedTraverser<? super E>>
+    int traverseSoft(F func, E from, boolean fromInclusive,
+                     E to, boolean toInclusive, int limit) {
+        return traverseRange(func, from, fromInclusive, to, toInclusive, limit, false, null);
+    }
+
+    public <F extends BoundedTraverser<? super E>>
+    int traverseHard(F func, E from, boolean fromInclusive,
+                     E to, boolean toInclusive, int limit) {
+        return traverseRange(func, from, fromInclusive, to, toInclusive, limit, true, null);
+    }
+
+    public <F extends BoundedTraverser<? super E>>
+    int nextPage(RangeCursor<E> cursor, F func, int limit) {
+        if (!cursor.hasMore())
+            return 0;
+        return traverseRange(func, cursor.from(), cursor.fromInclusive(),
+                cursor.to(), cursor.toInclusive(), limit, false, cursor);
+    }
+
+    public <F extends BoundedTraverser<? super E>>
+    int nextPageHard(RangeCursor<E> cursor, F func, int limit) {
+        if (!cursor.hasMore())
+            return 0;
+        return traverseRange(func, cursor.from(), cursor.fromInclusive(),
+                cursor.to(), cursor.toInclusive(), limit, true, cursor);
+    }
+
+    /**
+     * Unlinks every "deleted" node, safe to run alongside readers and writers
+     * @return true if any node was unlinked
+     */
+    public boolean collectGarbage() {
+        boolean result = false;
+        for (SkipNode<E> curr = first(); curr != null; curr = next(curr)) {
+            if (curr.state == DELETED && STATE.compareAndSet(curr, DELETED, DEAD)) {
+                unlink(curr);
+                result = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts a daemon thread that calls collectGarbage() periodically
+     * @param periodMillis delay between collections
+     */
+    public synchronized void startCollector(long periodMillis) {
+        if (collector != null)
+            return;
+        collector = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "skiplist-collector");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        collector.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                collectGarbage();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background collector if running
+     */
+    public synchronized void stopCollector() {
+        if (collector == null)
+            return;
+        collector.shutdownNow();
+        collector = null;
+    }
+
+    // private helper methods ----------------------------------------
+
+    /**
+     * Fills preds/succs with the neighbours of x on every level,
+     * snipping out marked nodes on the way
+     * @param x datum to search for
+     * @param preds last node before x on each level
+     * @param succs first node at or after x on each level
+     * @return true if a node equal to x is linked on the bottom level
+     */
+    protected boolean find(E x, SkipNode<E>[] preds, SkipNode<E>[] succs) {
+        boolean[] marked = {false};
+        retry:
+        while (true) {
+            SkipNode<E> pred = mHead;
+            SkipNode<E> curr = null;
+            for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+                curr = pred.next[level].getReference();
+                while (curr != null) {
+                    SkipNode<E> succ = curr.next[level].get(marked);
+                    while (marked[0]) {
+                        if (!pred.next[level].compareAndSet(curr, succ, false, false))
+                            continue retry;
+                        curr = succ;
+                        if (curr == null)
+                            break;
+                        succ = curr.next[level].get(marked);
+                    }
+                    if (curr == null || curr.data.compareTo(x) >= 0)
+                        break;
+                    pred = curr;
+                    curr = succ;
+                }
+                preds[level] = pred;
+                succs[level] = curr;
+            }
+            return curr != null && curr.data.compareTo(x) == 0;
+        }
+    }
+
+    /**
+     * Read only search, does not help unlink
+     * @param x datum to search for
+     * @return node equal to x that is not DEAD, or null
+     */
+    protected SkipNode<E> findNode(E x) {
+        SkipNode<E> pred = mHead;
+        SkipNode<E> curr = null;
+        // a stale top level only costs speed, level 0 holds every node
+        for (int level = Math.max(mTopLevel, 0); level >= 0; level--) {
+            curr = pred.next[level].getReference();
+            while (curr != null && curr.data.compareTo(x) < 0) {
+                if (curr.state != LIVE)
+                    mDeadComparisons.increment();
+                pred = curr;
+                curr = curr.next[level].getReference();
+            }
+        }
+        // skip nodes that are still linked but already unlinked logically
+        while (curr != null && curr.state == DEAD && curr.data.compareTo(x) == 0)
+            curr = curr.next[0].getReference();
+        if (curr == null || curr.data.compareTo(x) != 0)
+            return null;
+        return curr;
+    }
+
+    /**
+     * Descends to the lower bound, then walks the bottom level up to the
+     * upper bound
+     * @param cursor cursor to advance after the walk, or null
+     * @return number of data visited
+     */
+    protected int traverseRange(BoundedTraverser<? super E> func, E from, boolean fromInclusive,
+                                E to, boolean toInclusive, int limit, boolean hard,
+                                RangeCursor<E> cursor) {
+        SkipNode<E> curr = (from == null) ? first() : ceiling(from, fromInclusive);
+        int visited = 0;
+        E last = null;
+        boolean stopped = (limit <= 0);
+
+        for (; curr != null && !stopped; curr = next(curr)) {
+            if (to != null) {
+                int compareResult = curr.data.compareTo(to);
+                if (compareResult > 0 || (compareResult == 0 && !toInclusive))
+                    break;
+            }
+            if (hard || curr.state == LIVE) {
+                visited++;
+                last = curr.data;
+                if (!func.visit(curr.data) || visited >= limit)
+                    stopped = true;
+            }
+        }
+        if (cursor != null)
+            cursor.advance(last, !stopped);
+        return visited;
+    }
+
+    /**
+     * @param x bound to search for
+     * @param inclusive whether a node equal to x qualifies
+     * @return first node at (or after) x that is not DEAD, or null
+     */
+    protected SkipNode<E> ceiling(E x, boolean inclusive) {
+        SkipNode<E> pred = mHead;
+        for (int level = Math.max(mTopLevel, 0); level >= 0; level--) {
+            SkipNode<E> curr = pred.next[level].getReference();
+            while (curr != null && curr.data.compareTo(x) < 0) {
+                pred = curr;
+                curr = curr.next[level].getReference();
+            }
+        }
+        SkipNode<E> curr = next(pred);
+        if (!inclusive && curr != null && curr.data.compareTo(x) == 0)
+            curr = next(curr);
+        return curr;
+    }
+
+    /**
+     * Marks a DEAD node's links and snips it out of every level
+     * @param node node already moved to DEAD by the caller
+     */
+    protected void unlink(SkipNode<E> node) {
+        markLinks(node);
+        find(node.data, newNodeArray(), newNodeArray());
+    }
+
+    /**
+     * Marks all forward links of a DEAD node, top level first. The thread
+     * that marks the bottom level owns the hard size update.
+     * @param node node to mark
+     */
+    protected void markLinks(SkipNode<E> node) {
+        boolean[] marked = {false};
+        for (int level = node.topLevel; level >= 1; level--) {
+            SkipNode<E> succ = node.next[level].get(marked);
+            while (!marked[0]) {
+                node.next[level].compareAndSet(succ, succ, false, true);
+                succ = node.next[level].get(marked);
+            }
+        }
+        SkipNode<E> succ = node.next[0].get(marked);
+        while (!marked[0]) {
+            if (node.next[0].compareAndSet(succ, succ, false, true)) {
+                mSizeHard.decrementAndGet();
+                return;
+            }
+            succ = node.next[0].get(marked);
+        }
+    }
+
+    protected SkipNode<E> first() {
+        return next(mHead);
+    }
+
+    /**
+     * @param node node on the bottom level
+     * @return next node on the bottom level that is not being unlinked
+     */
+    protected SkipNode<E> next(SkipNode<E> node) {
+        SkipNode<E> curr = node.next[0].getReference();
+        while (curr != null && curr.state == DEAD)
+            curr = curr.next[0].getReference();
+        return curr;
+    }
+
+    /**
+     * Descends the express lanes to the last node
+     * @return last node not DEAD, or null
+     */
+    protected SkipNode<E> last() {
+        SkipNode<E> pred = mHead;
+        for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+            SkipNode<E> curr = pred.next[level].getReference();
+            while (curr != null) {
+                pred = curr;
+                curr = curr.next[level].getReference();
+            }
+        }
+        return (pred == mHead || pred.state == DEAD) ? null : pred;
+    }
+
+    /**
+     * Records the highest level in use, only used for reporting so a
+     * lost update between racing inserts is harmless
+     * @param level top level of a newly linked node
+     */
+    protected void raiseTopLevel(int level) {
+        if (level > mTopLevel)
+            mTopLevel = level;
+    }
+
+    /**
+     * @return geometric level in [0, MAX_LEVEL), p = 1/2
+     */
+    protected static int randomLevel() {
+        return Integer.numberOfTrailingZeros(
+                ThreadLocalRandom.current().nextInt() | (1 << (MAX_LEVEL - 1)));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected SkipNode<E>[] newNodeArray() {
+        return (SkipNode<E>[]) new SkipNode[MAX_LEVEL];
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<SkipNode> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(SkipNode.class, "state");
+
+    /**
+     * Skip list node, one forward link per level
+     */
+    protected static class SkipNode<E> {
+        protected final E data;
+        protected final int topLevel;
+        protected final AtomicMarkableReference<SkipNode<E>>[] next;
+        protected volatile int state;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected SkipNode(E d, int topLevel) {
+            data = d;
+            this.topLevel = topLevel;
+            next = (AtomicMarkableReference<SkipNode<E>>[])
+                    new AtomicMarkableReference[topLevel + 1];
+            for (int level = 0; level <= topLevel; level++)
+                next[level] = new AtomicMarkableReference<SkipNode<E>>(null, false);
+            state = LIVE;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package lazyTrees;
+
+/**
+ * A lazy store whose operations are safe to call from many threads at once,
+ * like java.util.concurrent.ConcurrentMap for maps. Owners such as
+ * SuperMarket need no lock of their own around such a store.
+ * @author Myron Pow
+ */
+public interface ConcurrentLazyStore<E extends Comparable<? super E>> extends LazyStore<E> {
+}
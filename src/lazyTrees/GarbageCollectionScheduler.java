@@ -0,0 +1,288 @@
+package lazyTrees;
+
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Applies a CollectionPolicy to a lazy store. The owner reports each
+ * inventory operation, then asks shouldCollect() whether to run collect().
+ * shouldCollectIdle() lets an idle store be checked without any traffic;
+ * idle time is only measured there, so it has the resolution of the
+ * period it is called with.
+ * The hot path keeps raw numbers only: the latest decision and the last
+ * HISTORY_SIZE decisions to collect are formatted when asked for.
+ * Safe to share between registers: operations are counted without a lock,
+ * and a register that finds another one deciding or collecting skips its
+ * own check instead of waiting.
+ * @author Myron Pow
+ */
+public class GarbageCollectionScheduler {
+    public static final int HISTORY_SIZE = 16;
+
+    private final LazyStore<?> store;
+    private volatile CollectionPolicy policy;
+    private volatile PrintStream log;
+
+    // operations ever, traffic since the last collection is the difference
+    // to the snapshot taken by collect()
+    private final LongAdder activity = new LongAdder();
+    private final LongAdder deletions = new LongAdder();
+
+    // everything below is guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private long activityAtCollection;
+    private long deletionsAtCollection;
+    private long deadComparisonsAtCollection;
+
+    // shouldCollectIdle() notices new traffic by comparing activity
+    private long activityAtTick;
+    private long lastActivityMillis = System.currentTimeMillis();
+
+    private long lastCollectionNanos;
+    private int lastCollectionSizeHard;
+    private int collections;
+    private long decisions;
+    private long collectionNanos;
+    private long maxCollectionNanos;
+
+    private CollectionStats lastStats;
+    private CollectionPolicy lastPolicy;
+    private boolean lastCollect;
+
+    // ring of the latest decisions to collect
+    private final CollectionStats[] historyStats = new CollectionStats[HISTORY_SIZE];
+    private final CollectionPolicy[] historyPolicies = new CollectionPolicy[HISTORY_SIZE];
+    private int historyCount;
+
+    /**
+     * @param store store to collect
+     * @param policy when to collect
+     */
+    public GarbageCollectionScheduler(LazyStore<?> store, CollectionPolicy policy) {
+        this.store = store;
+        this.policy = policy;
+        deadComparisonsAtCollection = store.deadComparisons();
+    }
+
+    public CollectionPolicy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(CollectionPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Prints every decision to collect, e.g. System.out; null to stay quiet
+     * @param log stream to print to
+     */
+    public void setLog(PrintStream log) {
+        this.log = log;
+    }
+
+    /**
+     * Reports one inventory operation
+     * @param deletion whether it lazily deleted an entry
+     */
+    public void recordOperation(boolean deletion) {
+        activity.increment();
+        if (deletion)
+            deletions.increment();
+    }
+
+    /**
+     * Asks the policy whether to collect now, right after an operation,
+     * so the store is not idle
+     * @return the policy's decision, false while another thread decides or collects
+     */
+    public boolean shouldCollect() {
+        if (!lock.tryLock())
+            return false;
+        try {
+            return decide(stats(0));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Collects the store and starts counting traffic afresh
+     * @return result of the store's collectGarbage()
+     */
+    public boolean collect() {
+        lock.lock();
+        try {
+            int sizeHard = store.sizeHard();
+            long start = System.nanoTime();
+            boolean result = store.collectGarbage();
+            long elapsed = System.nanoTime() - start;
+
+            collections++;
+            collectionNanos += elapsed;
+            maxCollectionNanos = Math.max(maxCollectionNanos, elapsed);
+            lastCollectionNanos = elapsed;
+            lastCollectionSizeHard = sizeHard;
+            activityAtCollection = activity.sum();
+            deletionsAtCollection = deletions.sum();
+            deadComparisonsAtCollection = store.deadComparisons();
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Collects if the policy says so
+     * @return true if a collection ran
+     */
+    public boolean maybeCollect() {
+        if (!shouldCollect())
+            return false;
+        collect();
+        return true;
+    }
+
+    /**
+     * Asks the policy whether to collect now, including how long the store
+     * has been idle. Call it periodically, as SuperMarket.startIdleCollector()
+     * does, and collect if it says so.
+     * @return the policy's decision
+     */
+    public boolean shouldCollectIdle() {
+        lock.lock();
+        try {
+            return decide(stats());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return current state as the policy sees it
+     */
+    public CollectionStats stats() {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            long total = activity.sum();
+            if (total != activityAtTick) {
+                activityAtTick = total;
+                lastActivityMillis = now;
+            }
+            return stats(now - lastActivityMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return report of the latest decision
+     */
+    public String lastDecision() {
+        lock.lock();
+        try {
+            if (lastStats == null)
+                return "no decision yet";
+            return report(lastCollect, lastPolicy, lastStats);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return reports of the latest decisions to collect, oldest first
+     */
+    public List<String> history() {
+        lock.lock();
+        try {
+            int count = Math.min(historyCount, HISTORY_SIZE);
+            List<String> reports = new ArrayList<String>(count);
+            for (int i = historyCount - count; i < historyCount; i++)
+                reports.add(report(true, historyPolicies[i % HISTORY_SIZE],
+                        historyStats[i % HISTORY_SIZE]));
+            return reports;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCollections() {
+        lock.lock();
+        try {
+            return collections;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDecisions() {
+        lock.lock();
+        try {
+            return decisions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCollectionNanos() {
+        lock.lock();
+        try {
+            return collectionNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMaxCollectionNanos() {
+        lock.lock();
+        try {
+            return maxCollectionNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // private helper methods ----------------------------------------
+
+    /**
+     * Current state, called with lock held
+     */
+    private CollectionStats stats(long idleMillis) {
+        return new CollectionStats(store.size(), store.sizeHard(),
+                deletions.sum() - deletionsAtCollection,
+                activity.sum() - activityAtCollection,
+                Math.max(0, store.deadComparisons() - deadComparisonsAtCollection),
+                idleMillis, lastCollectionNanos, lastCollectionSizeHard);
+    }
+
+    /**
+     * Asks the policy and remembers the raw numbers of its decision,
+     * called with lock held
+     */
+    private boolean decide(CollectionStats stats) {
+        CollectionPolicy policy = this.policy;
+        boolean collect = policy.shouldCollect(stats);
+        decisions++;
+        lastStats = stats;
+        lastPolicy = policy;
+        lastCollect = collect;
+        if (collect) {
+            historyStats[historyCount % HISTORY_SIZE] = stats;
+            historyPolicies[historyCount % HISTORY_SIZE] = policy;
+            historyCount++;
+            PrintStream log = this.log;
+            if (log != null)
+                log.println("gc: " + report(true, policy, stats));
+        }
+        return collect;
+    }
+
+    private static String report(boolean collect, CollectionPolicy policy,
+                                 CollectionStats stats) {
+        return (collect ? "collect" : "skip") + " [" + policy + "] " + stats;
+    }
+}
@@ -11,8 +11,9 @@ public class Item implements Comparable<Item>
 	// the name of the item
 	private String name;
 
-	// the count of this item
-	private int count;
+	// the count of this item, changed under the item's lock by SuperMarket
+	// and read without it by traversals
+	private volatile int count;
 
 	/**
 	 * Constructor takes name for item. Instantiates count to 1.
@@ -50,6 +51,13 @@ public class Item implements Comparable<Item>
 	public int getCount()
 	{	return count;	}
 
+	/**
+	 * Get the name of the item
+	 * @return	name as given when the item was created.
+	 */
+	public String getName()
+	{	return name;	}
+
 	/**
 	 * Use item name for comparing. 
 	 */
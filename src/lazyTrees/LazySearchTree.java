@@ -10,10 +10,11 @@ import java.util.*;
  * @author Myron Pow 5/17/17
  */
 public class LazySearchTree<E extends Comparable< ? super E > >
-        implements Cloneable {
+        implements LazyStore<E>, Cloneable {
     protected int mSize;
     protected int mSizeHard;
     protected LazySTNode mRoot;
+    protected long mDeadComparisons;
 
     /**
      * Creates empty LazyTree
@@ -45,6 +46,7 @@ public class LazySearchTree<E extends Comparable< ? super E > >
         mSize = 0;
         mSizeHard = 0;
         mRoot = null;
+        mDeadComparisons = 0;
     }
 
     public int showHeight() {
@@ -59,14 +61,24 @@ public class LazySearchTree<E extends Comparable< ? super E > >
         return mSizeHard;
     }
 
+    /**
+     * Accessor for comparisons made against "deleted" nodes by find()
+     * @return running total since the tree was created or cleared
+     */
+    public long deadComparisons() {
+        return mDeadComparisons;
+    }
+
     /**
      * Finds smallest soft value
      * @return smallest soft datum
      */
     public E findMin() {
-        if (mRoot == null)
+        // null also when every node is "deleted"
+        LazySTNode node = findMin(mRoot);
+        if (node == null)
             throw new NoSuchElementException();
-        return findMin(mRoot).data;
+        return node.data;
     }
 
     /**
@@ -84,9 +96,11 @@ public class LazySearchTree<E extends Comparable< ? super E > >
      * @return largest soft datum
      */
     public E findMax() {
-        if (mRoot == null)
+        // null also when every node is "deleted"
+        LazySTNode node = findMax(mRoot);
+        if (node == null)
             throw new NoSuchElementException();
-        return findMax(mRoot).data;
+        return node.data;
     }
 
     /**
@@ -174,6 +188,70 @@ public class LazySearchTree<E extends Comparable< ? super E > >
         traverseHard(func, mRoot);
     }
 
+    /**
+     * Traverses soft nodes between two bounds, skipping subtrees out of range
+     * @param func visitor, returns false to stop
+     * @param from lower bound, null for none
+     * @param fromInclusive whether from is in range
+     * @param to upper bound, null for none
+     * @param toInclusive whether to is in range
+     * @param limit maximum number of nodes to visit
+     * @param <F> as above
+     * @return number of nodes visited
+     */
+    public <F extends BoundedTraverser<? super E>>
+    int traverseSoft(F func, E from, boolean fromInclusive,
+                     E to, boolean toInclusive, int limit) {
+        RangeWalk walk = new RangeWalk(func, from, fromInclusive, to, toInclusive, limit, false);
+        traverseRange(walk, mRoot);
+        return walk.visited;
+    }
+
+    /**
+     * Traverses ALL nodes between two bounds, including "deleted"
+     * @param func visitor, returns false to stop
+     * @param from lower bound, null for none
+     * @param fromInclusive whether from is in range
+     * @param to upper bound, null for none
+     * @param toInclusive whether to is in range
+     * @param limit maximum number of nodes to visit
+     * @param <F> as above
+     * @return number of nodes visited
+     */
+    public <F extends BoundedTraverser<? super E>>
+    int traverseHard(F func, E from, boolean fromInclusive,
+                     E to, boolean toInclusive, int limit) {
+        RangeWalk walk = new RangeWalk(func, from, fromInclusive, to, toInclusive, limit, true);
+        traverseRange(walk, mRoot);
+        return walk.visited;
+    }
+
+    /**
+     * Visits the next page of soft nodes and moves the cursor past it
+     * @param cursor position to resume from
+     * @param func visitor, returns false to end the page early
+     * @param limit page size
+     * @param <F> as above
+     * @return number of nodes visited
+     */
+    public <F extends BoundedTraverser<? super E>>
+    int nextPage(RangeCursor<E> cursor, F func, int limit) {
+        return nextPage(cursor, func, limit, false);
+    }
+
+    /**
+     * Visits the next page of ALL nodes, including "deleted"
+     * @param cursor position to resume from
+     * @param func visitor, returns false to end the page early
+     * @param limit page size
+     * @param <F> as above
+     * @return number of nodes visited
+     */
+    public <F extends BoundedTraverser<? super E>>
+    int nextPageHard(RangeCursor<E> cursor, F func, int limit) {
+        return nextPage(cursor, func, limit, true);
+    }
+
     /**
      * Clones a tree
      * @return cloned object
@@ -256,7 +334,7 @@ public class LazySearchTree<E extends Comparable< ? super E > >
             return null;
         if (root.rtChild == null)
             return root;
-        return findMaxHard(root.lftChild);
+        return findMaxHard(root.rtChild);
     }
 
     /**
@@ -318,7 +396,10 @@ public class LazySearchTree<E extends Comparable< ? super E > >
         else if (compareResult > 0)
             root.rtChild = removeHard(root.rtChild, x);
         else if (root.lftChild != null && root.rtChild != null){
-            root.data = findMin(root.rtChild).data;
+            // successor carries its own "deleted" mark along with its data
+            LazySTNode successor = findMinHard(root.rtChild);
+            root.data = successor.data;
+            root.deleted = successor.deleted;
             root.rtChild = removeHard(root.rtChild, root.data);
         }
         else {
@@ -361,6 +442,43 @@ public class LazySearchTree<E extends Comparable< ? super E > >
         traverseSoft(func, treeNode.rtChild);
     }
 
+    /**
+     * Shared page logic of nextPage and nextPageHard
+     */
+    protected <F extends BoundedTraverser<? super E>>
+    int nextPage(RangeCursor<E> cursor, F func, int limit, boolean hard) {
+        if (!cursor.hasMore())
+            return 0;
+        RangeWalk walk = new RangeWalk(func, cursor.from(), cursor.fromInclusive(),
+                cursor.to(), cursor.toInclusive(), limit, hard);
+        traverseRange(walk, mRoot);
+        cursor.advance(walk.last, !walk.stopped);
+        return walk.visited;
+    }
+
+    /**
+     * In order traversal of the nodes inside a walk's bounds. Subtrees left
+     * of the lower bound or right of the upper bound are never entered.
+     * @param walk bounds and state of the traversal
+     * @param treeNode tree to parse
+     */
+    protected void traverseRange(RangeWalk walk, LazySTNode treeNode) {
+        if (treeNode == null || walk.stopped)
+            return;
+
+        boolean aboveFrom = walk.aboveFrom(treeNode.data);
+        boolean belowTo = walk.belowTo(treeNode.data);
+
+        if (aboveFrom)
+            traverseRange(walk, treeNode.lftChild);
+        if (walk.stopped)
+            return;
+        if (aboveFrom && belowTo && (walk.hard || !treeNode.deleted))
+            walk.visit(treeNode.data);
+        if (belowTo)
+            traverseRange(walk, treeNode.rtChild);
+    }
+
     /**
      * Finds node with data if not lazily deleted
      * @param root tree to search
@@ -373,6 +491,8 @@ public class LazySearchTree<E extends Comparable< ? super E > >
         if (root == null)
             return null;
 
+        if (root.deleted)
+            mDeadComparisons++;
         compareResult = x.compareTo(root.data);
         if (compareResult < 0)
             return find(root.lftChild, x);
@@ -430,10 +550,56 @@ public class LazySearchTree<E extends Comparable< ? super E > >
         return root;
     }
 
+    /**
+     * Bounds and progress of one range traversal
+     */
+    protected class RangeWalk {
+        protected final BoundedTraverser<? super E> func;
+        protected final E from, to;
+        protected final boolean fromInclusive, toInclusive, hard;
+        protected final int limit;
+        protected int visited;
+        protected E last;
+        protected boolean stopped;
+
+        protected RangeWalk(BoundedTraverser<? super E> func, E from, boolean fromInclusive,
+                            E to, boolean toInclusive, int limit, boolean hard) {
+            this.func = func;
+            this.from = from;
+            this.fromInclusive = fromInclusive;
+            this.to = to;
+            this.toInclusive = toInclusive;
+            this.limit = limit;
+            this.hard = hard;
+            stopped = (limit <= 0);
+        }
+
+        protected boolean aboveFrom(E x) {
+            if (from == null)
+                return true;
+            int compareResult = x.compareTo(from);
+            return compareResult > 0 || (compareResult == 0 && fromInclusive);
+        }
+
+        protected boolean belowTo(E x) {
+            if (to == null)
+                return true;
+            int compareResult = x.compareTo(to);
+            return compareResult < 0 || (compareResult == 0 && toInclusive);
+        }
+
+        protected void visit(E x) {
+            visited++;
+            last = x;
+            if (!func.visit(x) || visited >= limit)
+                stopped = true;
+        }
+    }
+
     /**
      * LazyTree node class
      */
-    private class LazySTNode{
+    protected class LazySTNode{
         // use public access so the tree or other classes can access members
         protected LazySTNode lftChild, rtChild;
         protected E data;
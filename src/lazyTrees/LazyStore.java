@@ -0,0 +1,174 @@
+package lazyTrees;
+
+/**
+ * Common operations of an ordered store with lazy deletion.
+ * Deleted entries stay in the store ("hard") until garbage is collected,
+ * but are hidden from every "soft" operation.
+ * @author Myron Pow
+ */
+public interface LazyStore<E extends Comparable<? super E>> {
+
+    /**
+     * Checks to see if the store has no soft entries
+     * @return true if there are no soft entries
+     */
+    boolean empty();
+
+    /**
+     * Accessor for soft size
+     * @return number of entries not "deleted"
+     */
+    int size();
+
+    /**
+     * Accessor for hard size, incl "deleted"
+     * @return total number of entries
+     */
+    int sizeHard();
+
+    /**
+     * Clears store to default values
+     */
+    void clear();
+
+    /**
+     * Depth of the underlying structure (tree height, skip list levels)
+     * @return height, -1 when empty
+     */
+    int showHeight();
+
+    /**
+     * Finds smallest soft value
+     * @return smallest soft datum
+     */
+    E findMin();
+
+    /**
+     * Finds smallest hard value
+     * @return smallest hard datum
+     */
+    E findMinHard();
+
+    /**
+     * Finds largest soft value
+     * @return largest soft datum
+     */
+    E findMax();
+
+    /**
+     * Finds largest hard value
+     * @return largest hard datum
+     */
+    E findMaxHard();
+
+    /**
+     * Returns the stored datum equal to x if not "deleted"
+     * @param x value to find
+     * @return stored datum
+     */
+    E find(E x);
+
+    /**
+     * @param x value to find
+     * @return true if x is present and not "deleted"
+     */
+    boolean contains(E x);
+
+    /**
+     * Inserts x, or revives it if it was lazily deleted
+     * @param x datum to add
+     * @return true if the soft size changed
+     */
+    boolean insert(E x);
+
+    /**
+     * Lazily removes x
+     * @param x datum to remove
+     * @return true if the soft size changed
+     */
+    boolean remove(E x);
+
+    /**
+     * Physically removes x
+     * @param x datum to remove
+     * @return boolean value on operation state
+     */
+    boolean removeHard(E x);
+
+    /**
+     * Visits soft entries in order
+     * @param func functor to call on each datum
+     * @param <F> traverser type
+     */
+    <F extends Traverser<? super E>> void traverseSoft(F func);
+
+    /**
+     * Visits all entries in order, including "deleted"
+     * @param func functor to call on each datum
+     * @param <F> traverser type
+     */
+    <F extends Traverser<? super E>> void traverseHard(F func);
+
+    /**
+     * Visits soft entries between two bounds in order, a null bound is open
+     * @param func functor to call on each datum, may stop the traversal
+     * @param from lower bound
+     * @param fromInclusive whether from itself is visited
+     * @param to upper bound
+     * @param toInclusive whether to itself is visited
+     * @param limit maximum number of data to visit
+     * @param <F> traverser type
+     * @return number of data visited
+     */
+    <F extends BoundedTraverser<? super E>> int traverseSoft(F func,
+            E from, boolean fromInclusive, E to, boolean toInclusive, int limit);
+
+    /**
+     * Visits all entries between two bounds in order, including "deleted"
+     * @param func functor to call on each datum, may stop the traversal
+     * @param from lower bound
+     * @param fromInclusive whether from itself is visited
+     * @param to upper bound
+     * @param toInclusive whether to itself is visited
+     * @param limit maximum number of data to visit
+     * @param <F> traverser type
+     * @return number of data visited
+     */
+    <F extends BoundedTraverser<? super E>> int traverseHard(F func,
+            E from, boolean fromInclusive, E to, boolean toInclusive, int limit);
+
+    /**
+     * Visits the next page of soft entries of a cursor and advances it
+     * @param cursor position to resume from
+     * @param func functor to call on each datum, may stop the page early
+     * @param limit page size
+     * @param <F> traverser type
+     * @return number of data visited
+     */
+    <F extends BoundedTraverser<? super E>> int nextPage(RangeCursor<E> cursor,
+            F func, int limit);
+
+    /**
+     * Visits the next page of all entries of a cursor, including "deleted"
+     * @param cursor position to resume from
+     * @param func functor to call on each datum, may stop the page early
+     * @param limit page size
+     * @param <F> traverser type
+     * @return number of data visited
+     */
+    <F extends BoundedTraverser<? super E>> int nextPageHard(RangeCursor<E> cursor,
+            F func, int limit);
+
+    /**
+     * Search steps that landed on a "deleted" entry, the extra work
+     * lookups pay for garbage that has not been collected yet
+     * @return running total since the store was created or cleared
+     */
+    long deadComparisons();
+
+    /**
+     * Physically removes all lazily deleted entries
+     * @return boolean value of operation
+     */
+    boolean collectGarbage();
+}
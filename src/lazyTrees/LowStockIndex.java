@@ -0,0 +1,120 @@
+package lazyTrees;
+
+
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * Secondary index of items ordered by (count, name), so the items closest
+ * to selling out are at the front. Entries are keyed by a snapshot of the
+ * count; the owner reports every count change through update().
+ * Backed by a balanced tree, so the build order does not matter and stale
+ * entries are removed eagerly rather than left behind as tombstones.
+ * @author Myron Pow
+ */
+public class LowStockIndex {
+    private final TreeSet<StockEntry> index = new TreeSet<StockEntry>();
+
+    /**
+     * Adds an item at its current count
+     * @param item item now in stock
+     */
+    public void add(Item item) {
+        index.add(new StockEntry(item, item.getCount()));
+    }
+
+    /**
+     * Moves an item after its count changed
+     * @param item item whose count changed
+     * @param oldCount count the item was indexed under
+     */
+    public void update(Item item, int oldCount) {
+        remove(item, oldCount);
+        add(item);
+    }
+
+    /**
+     * Drops an item, e.g. when it is lazily deleted from the inventory
+     * @param item item to drop
+     * @param count count the item was indexed under
+     */
+    public void remove(Item item, int count) {
+        index.remove(new StockEntry(item, count));
+    }
+
+    /**
+     * @return number of indexed items
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Empties the index
+     */
+    public void clear() {
+        index.clear();
+    }
+
+    /**
+     * Visits the n items with the lowest count, lowest first
+     * @param n number of items to visit
+     * @param func functor to call on each item
+     * @return number of items visited
+     */
+    public int lowest(int n, Traverser<? super Item> func) {
+        return visit(index.iterator(), n, func);
+    }
+
+    /**
+     * Visits every item with a count below threshold, lowest first
+     * @param threshold exclusive upper bound on the count
+     * @param func functor to call on each item
+     * @return number of items visited
+     */
+    public int below(int threshold, Traverser<? super Item> func) {
+        // the empty name sorts before every item with that count
+        StockEntry bound = new StockEntry(threshold, "");
+        return visit(index.headSet(bound, false).iterator(), Integer.MAX_VALUE, func);
+    }
+
+    /**
+     * Hands up to limit indexed items to an item traverser
+     */
+    private static int visit(Iterator<StockEntry> entries, int limit,
+                             Traverser<? super Item> func) {
+        int visited = 0;
+        while (visited < limit && entries.hasNext()) {
+            func.visit(entries.next().item);
+            visited++;
+        }
+        return visited;
+    }
+
+    /**
+     * Index key: count first, then item name
+     */
+    private static class StockEntry implements Comparable<StockEntry> {
+        private final Item item;
+        private final int count;
+        private final String name;
+
+        StockEntry(Item item, int count) {
+            this.item = item;
+            this.count = count;
+            this.name = item.getName();
+        }
+
+        StockEntry(int count, String name) {
+            this.item = null;
+            this.count = count;
+            this.name = name;
+        }
+
+        public int compareTo(StockEntry other) {
+            if (count != other.count)
+                return (count < other.count) ? -1 : 1;
+            return name.compareToIgnoreCase(other.name);
+        }
+    }
+}
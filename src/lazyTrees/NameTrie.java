@@ -0,0 +1,386 @@
+package lazyTrees;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compressed radix trie over item names, pointing at the same Item objects
+ * the inventory tree holds. Names are matched ignoring case, char by char
+ * like Item.compareTo(). Every edge label is a slice (start, end) of the
+ * name of an Item below it rather than a copy, so the trie adds nodes but
+ * no character data; collectGarbage() moves labels onto names still in
+ * the trie. Follows the inventory's
+ * lazy deletion: remove() only marks an entry, put() revives it and
+ * collectGarbage() unlinks marked entries and re-compresses the trie.
+ * Every node counts the soft entries below it, so soft prefix searches
+ * never enter subtrees holding only "deleted" entries.
+ * @author Myron Pow
+ */
+public class NameTrie {
+    private TrieNode mRoot;
+    private int mSize;
+    private int mSizeHard;
+
+    /**
+     * Creates empty trie
+     */
+    public NameTrie() {
+        clear();
+    }
+
+    /**
+     * Clears trie to default values
+     */
+    public void clear() {
+        mRoot = new TrieNode("", 0, 0);
+        mSize = 0;
+        mSizeHard = 0;
+    }
+
+    /**
+     * @return number of soft entries
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return number of entries, incl "deleted"
+     */
+    public int sizeHard() {
+        return mSizeHard;
+    }
+
+    /**
+     * Adds an item under its name, or revives the "deleted" entry of that name
+     * @param item item to index
+     * @return true if the soft size changed
+     */
+    public boolean put(Item item) {
+        int delta = put(mRoot, item.getName(), 0, item);
+        mSize += delta;
+        return delta != 0;
+    }
+
+    /**
+     * Lazily removes the entry of a name
+     * @param name item name
+     * @return true if the soft size changed
+     */
+    public boolean remove(String name) {
+        int delta = remove(mRoot, name, 0);
+        mSize += delta;
+        return delta != 0;
+    }
+
+    /**
+     * @param name item name
+     * @return true if a soft entry has this name
+     */
+    public boolean contains(String name) {
+        TrieNode node = mRoot;
+        int i = 0;
+        while (i < name.length()) {
+            node = node.child(fold(name.charAt(i)));
+            if (node == null || commonPrefix(node, name, i) < node.length())
+                return false;
+            i += node.length();
+        }
+        return node.item != null && !node.deleted;
+    }
+
+    /**
+     * Visits soft entries starting with prefix in lexical order
+     * @param prefix name prefix, case is ignored
+     * @param func functor to call on each item
+     * @return number of items visited
+     */
+    public int traverseSoft(String prefix, Traverser<? super Item> func) {
+        TrieNode node = locate(prefix);
+        return (node == null) ? 0 : traverse(node, func, false);
+    }
+
+    /**
+     * Visits all entries starting with prefix, including "deleted"
+     * @param prefix name prefix, case is ignored
+     * @param func functor to call on each item
+     * @return number of items visited
+     */
+    public int traverseHard(String prefix, Traverser<? super Item> func) {
+        TrieNode node = locate(prefix);
+        return (node == null) ? 0 : traverse(node, func, true);
+    }
+
+    /**
+     * Suggests names of soft entries starting with prefix
+     * @param prefix name prefix, case is ignored
+     * @param limit maximum number of suggestions
+     * @return item names in lexical order
+     */
+    public List<String> complete(String prefix, int limit) {
+        List<String> result = new ArrayList<String>();
+        TrieNode node = locate(prefix);
+        if (node != null && limit > 0)
+            complete(node, result, limit);
+        return result;
+    }
+
+    /**
+     * Unlinks "deleted" entries and merges nodes left with a single child
+     * @return true if any entry was unlinked
+     */
+    public boolean collectGarbage() {
+        int oldSizeHard = mSizeHard;
+        collectGarbage(mRoot);
+        return (mSizeHard != oldSizeHard);
+    }
+
+    // private helper methods ----------------------------------------
+
+    /**
+     * Case folding of String.compareToIgnoreCase(), which Item uses
+     */
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Inserts or revives key below node
+     * @param node subtree root, its label is already matched
+     * @param key item name
+     * @param i position in key after node's label
+     * @param item item to store
+     * @return change of the soft size
+     */
+    private int put(TrieNode node, String key, int i, Item item) {
+        int delta;
+
+        if (i == key.length()) {
+            if (node.item == null) {
+                mSizeHard++;
+                delta = 1;
+            }
+            else
+                delta = node.deleted ? 1 : 0;
+            // after garbage collection the inventory creates a new Item
+            node.item = item;
+            node.deleted = false;
+        }
+        else {
+            TrieNode child = node.child(fold(key.charAt(i)));
+            if (child == null) {
+                child = new TrieNode(key, i, key.length());
+                child.item = item;
+                child.live = 1;
+                node.addChild(child);
+                mSizeHard++;
+                delta = 1;
+            }
+            else {
+                int common = commonPrefix(child, key, i);
+                if (common < child.length()) {
+                    // split the edge where key leaves it
+                    TrieNode middle = new TrieNode(child.source, child.start,
+                            child.start + common);
+                    middle.live = child.live;
+                    node.replaceChild(middle);
+                    child.start += common;
+                    middle.addChild(child);
+                    child = middle;
+                }
+                delta = put(child, key, i + common, item);
+            }
+        }
+        node.live += delta;
+        return delta;
+    }
+
+    /**
+     * Marks key "deleted" below node
+     * @return change of the soft size
+     */
+    private int remove(TrieNode node, String key, int i) {
+        int delta = 0;
+
+        if (i == key.length()) {
+            if (node.item != null && !node.deleted) {
+                node.deleted = true;
+                delta = -1;
+            }
+        }
+        else {
+            TrieNode child = node.child(fold(key.charAt(i)));
+            if (child != null && commonPrefix(child, key, i) == child.length())
+                delta = remove(child, key, i + child.length());
+        }
+        node.live += delta;
+        return delta;
+    }
+
+    /**
+     * Finds the subtree holding every name that starts with prefix
+     * @return subtree root, or null if no name starts with prefix
+     */
+    private TrieNode locate(String prefix) {
+        TrieNode node = mRoot;
+        int i = 0;
+        while (i < prefix.length()) {
+            node = node.child(fold(prefix.charAt(i)));
+            if (node == null)
+                return null;
+            int common = commonPrefix(node, prefix, i);
+            if (i + common == prefix.length())
+                return node;    // prefix ends inside or at the end of this edge
+            if (common < node.length())
+                return null;
+            i += common;
+        }
+        return node;
+    }
+
+    private int traverse(TrieNode node, Traverser<? super Item> func, boolean hard) {
+        if (!hard && node.live == 0)
+            return 0;
+
+        int visited = 0;
+        if (node.item != null && (hard || !node.deleted)) {
+            func.visit(node.item);
+            visited++;
+        }
+        for (int k = 0; k < node.childCount; k++)
+            visited += traverse(node.children[k], func, hard);
+        return visited;
+    }
+
+    private void complete(TrieNode node, List<String> result, int limit) {
+        if (node.live == 0)
+            return;
+        if (node.item != null && !node.deleted)
+            result.add(node.item.getName());
+        for (int k = 0; k < node.childCount && result.size() < limit; k++)
+            complete(node.children[k], result, limit);
+    }
+
+    /**
+     * Drops "deleted" entries below node and re-compresses the trie
+     * @return node, its replacement after a merge, or null if it is empty
+     */
+    private TrieNode collectGarbage(TrieNode node) {
+        if (node.deleted) {
+            node.item = null;
+            node.deleted = false;
+            mSizeHard--;
+        }
+
+        int kept = 0;
+        for (int k = 0; k < node.childCount; k++) {
+            TrieNode child = collectGarbage(node.children[k]);
+            if (child != null)
+                node.children[kept++] = child;
+        }
+        for (int k = kept; k < node.childCount; k++)
+            node.children[k] = null;
+        node.childCount = kept;
+
+        if (node == mRoot)
+            return node;
+        // any name below a node spells its label, keep the labels on names
+        // that are still indexed
+        if (node.item != null) {
+            node.source = node.item.getName();
+            return node;
+        }
+        if (node.childCount == 0)
+            return null;
+        if (node.childCount == 1) {
+            TrieNode child = node.children[0];
+            child.start = node.start;
+            return child;
+        }
+        node.source = node.children[0].source;
+        return node;
+    }
+
+    /**
+     * Length of the common prefix of node's label and key from position i
+     */
+    private static int commonPrefix(TrieNode node, String key, int i) {
+        int n = Math.min(node.length(), key.length() - i);
+        int common = 0;
+        while (common < n && node.charAt(common) == fold(key.charAt(i + common)))
+            common++;
+        return common;
+    }
+
+    /**
+     * Trie node, children are kept sorted by the first char of their label.
+     * The label is source.substring(start, end), where source is the name
+     * of an Item in this subtree and end is the length of the path so far.
+     */
+    private static class TrieNode {
+        private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
+        private String source;
+        private int start;
+        private final int end;
+        private TrieNode[] children = NO_CHILDREN;
+        private int childCount;
+        private Item item;          // null if no name ends here
+        private boolean deleted;
+        private int live;           // soft entries in this subtree
+
+        TrieNode(String source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        int length() {
+            return end - start;
+        }
+
+        /**
+         * @return folded char k of the label
+         */
+        char charAt(int k) {
+            return fold(source.charAt(start + k));
+        }
+
+        TrieNode child(char c) {
+            int k = search(c);
+            return (k >= 0) ? children[k] : null;
+        }
+
+        void addChild(TrieNode child) {
+            int k = -search(child.charAt(0)) - 1;
+            if (childCount == children.length) {
+                TrieNode[] grown = new TrieNode[Math.max(2, childCount * 2)];
+                System.arraycopy(children, 0, grown, 0, childCount);
+                children = grown;
+            }
+            System.arraycopy(children, k, children, k + 1, childCount - k);
+            children[k] = child;
+            childCount++;
+        }
+
+        void replaceChild(TrieNode child) {
+            children[search(child.charAt(0))] = child;
+        }
+
+        private int search(char c) {
+            int low = 0, high = childCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midChar = children[mid].charAt(0);
+                if (midChar < c)
+                    low = mid + 1;
+                else if (midChar > c)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package lazyTrees;
+
+/**
+ * Resumable position inside a key range of a LazyStore.
+ * Each page starts right after the last datum handed out, so a page
+ * costs one descent plus the page itself.
+ * @author Myron Pow
+ */
+public class RangeCursor<E extends Comparable< ? super E > > {
+    private E from;
+    private boolean fromInclusive;
+    private final E to;
+    private final boolean toInclusive;
+    private E last;
+    private boolean exhausted;
+
+    /**
+     * Cursor over [from, to], a null bound is open
+     * @param from lower bound, or null
+     * @param fromInclusive whether from itself is in range
+     * @param to upper bound, or null
+     * @param toInclusive whether to itself is in range
+     */
+    public RangeCursor(E from, boolean fromInclusive, E to, boolean toInclusive) {
+        this.from = from;
+        this.fromInclusive = fromInclusive;
+        this.to = to;
+        this.toInclusive = toInclusive;
+    }
+
+    /**
+     * Cursor over every datum
+     */
+    public RangeCursor() {
+        this(null, true, null, true);
+    }
+
+    /**
+     * @return false once a page ended because the range ran out
+     */
+    public boolean hasMore() {
+        return !exhausted;
+    }
+
+    /**
+     * Resume token, pass it as an exclusive lower bound to continue elsewhere
+     * @return last datum handed out, null before the first page
+     */
+    public E last() {
+        return last;
+    }
+
+    E from() { return from; }
+    boolean fromInclusive() { return fromInclusive; }
+    E to() { return to; }
+    boolean toInclusive() { return toInclusive; }
+
+    /**
+     * Moves the cursor past a finished page
+     * @param lastVisited last datum of the page, null if nothing was visited
+     * @param rangeDone whether the page ended because the range ran out
+     */
+    void advance(E lastVisited, boolean rangeDone) {
+        if (lastVisited != null) {
+            last = lastVisited;
+            from = lastVisited;
+            fromInclusive = false;
+        }
+        if (rangeDone)
+            exhausted = true;
+    }
+}
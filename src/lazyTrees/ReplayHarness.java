@@ -0,0 +1,188 @@
+package lazyTrees;
+
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Replays an inventory log through SuperMarket, quietly, and reports one
+ * row of measurements per backend so runs and backends can be compared.
+ * Usage: ReplayHarness log [plain|splay|skiplist ...] [--policy=spec]
+ * where spec is a CollectionPolicy spec such as fixed:4, ratio:0.25, cost
+ * @author Myron Pow
+ */
+public class ReplayHarness {
+    public static final String[] BACKENDS = {"plain", "splay", "skiplist"};
+
+    /**
+     * Creates an empty store by name
+     * @param backend plain, splay or skiplist
+     * @return new store
+     */
+    public static LazyStore<Item> backend(String backend) {
+        if (backend.equals("plain"))
+            return new LazySearchTree<Item>();
+        if (backend.equals("splay"))
+            return new SplayLazySearchTree<Item>();
+        if (backend.equals("skiplist"))
+            return new ConcurrentLazySkipList<Item>();
+        throw new IllegalArgumentException("unknown backend: " + backend);
+    }
+
+    public static final String POLICY_OPTION = "--policy=";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ReplayHarness log [plain|splay|skiplist ...] [--policy=spec]");
+            return;
+        }
+        String policy = "fixed:4";
+        List<String> backends = new ArrayList<String>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith(POLICY_OPTION))
+                policy = args[i].substring(POLICY_OPTION.length());
+            else
+                backends.add(args[i]);
+        }
+        if (backends.isEmpty())
+            backends.addAll(Arrays.asList(BACKENDS));
+
+        System.out.println("log: " + args[0] + ", collection policy: " + policy);
+        System.out.println(Result.HEADER);
+        for (String backend : backends)
+            System.out.println(replay(args[0], backend, CollectionPolicy.parse(policy)));
+    }
+
+    /**
+     * Replays a log through a fresh SuperMarket on the given backend
+     * @param path log file
+     * @param backend plain, splay or skiplist
+     * @param policy when to collect garbage
+     * @return measurements of the run
+     */
+    public static Result replay(String path, String backend, CollectionPolicy policy)
+            throws IOException {
+        Result result = new Result(backend);
+        SuperMarket market = new SuperMarket(backend(backend), policy);
+        market.setVerbose(false);
+
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            pool.resetPeakUsage();
+        long jvmCollections = jvmCollections();
+        long jvmCollectionMillis = jvmCollectionMillis();
+
+        BufferedReader input = new BufferedReader(new FileReader(path), 1 << 16);
+        long begin = System.nanoTime();
+        try {
+            String line;
+            while ((line = input.readLine()) != null) {
+                result.lines++;
+                String[] tokens = line.split(" ");
+                if (tokens[0].equals("add")) {
+                    market.addToInventory(tokens[1]);
+                    result.adds++;
+                }
+                else if (tokens[0].equals("buy")) {
+                    try {
+                        market.removeFromInventory(tokens[1]);
+                        result.buys++;
+                    } catch (NoSuchElementException ex) {
+                        result.failedBuys++;
+                    }
+                }
+                market.cleanInventory(line);
+            }
+        } catch (StackOverflowError error) {
+            // recursive trees overflow on degenerate (e.g. sorted) input
+            result.failure = "stack overflow at line " + result.lines;
+        } finally {
+            input.close();
+        }
+        result.nanos = System.nanoTime() - begin;
+
+        result.peakHeapBytes = peakHeap();
+        result.jvmCollections = jvmCollections() - jvmCollections;
+        result.jvmCollectionMillis = jvmCollectionMillis() - jvmCollectionMillis;
+        result.collections = market.getCollections();
+        result.collectionNanos = market.getCollectionNanos();
+        result.maxCollectionNanos = market.getMaxCollectionNanos();
+        LazyStore<Item> inventory = market.getInventory();
+        result.size = inventory.size();
+        result.sizeHard = inventory.sizeHard();
+        if (result.failure == null) {
+            try {
+                result.height = inventory.showHeight();
+            } catch (StackOverflowError error) {
+                result.failure = "stack overflow measuring height";
+            }
+        }
+        return result;
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null)
+                peak += pool.getPeakUsage().getUsed();
+        return peak;
+    }
+
+    private static long jvmCollections() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(bean.getCollectionCount(), 0);
+        return count;
+    }
+
+    private static long jvmCollectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+            millis += Math.max(bean.getCollectionTime(), 0);
+        return millis;
+    }
+
+    /**
+     * Measurements of one replay. "gc" columns are inventory collectGarbage
+     * calls made by SuperMarket; "jvm" columns are JVM garbage collections.
+     */
+    public static class Result {
+        public static final String HEADER = String.format(
+                "%-9s %10s %12s %9s %9s %8s %8s %6s %6s %10s %9s %6s %9s  %s",
+                "backend", "lines", "lines/s", "size", "hard", "failed", "peakMB", "height",
+                "gc", "gcTotalMs", "gcMaxMs", "jvm", "jvmMs", "status");
+
+        public final String backend;
+        public long lines, adds, buys, failedBuys, nanos;
+        public long peakHeapBytes, jvmCollections, jvmCollectionMillis;
+        public long collectionNanos, maxCollectionNanos;
+        public int collections, size, sizeHard, height = -1;
+        public String failure;
+
+        Result(String backend) {
+            this.backend = backend;
+        }
+
+        public double linesPerSecond() {
+            return lines / (nanos / 1e9);
+        }
+
+        public String toString() {
+            return String.format(
+                    "%-9s %10d %12.0f %9d %9d %8d %8.1f %6d %6d %10.1f %9.2f %6d %9d  %s",
+                    backend, lines, linesPerSecond(), size, sizeHard, failedBuys,
+                    peakHeapBytes / 1048576.0, height, collections, collectionNanos / 1e6,
+                    maxCollectionNanos / 1e6, jvmCollections, jvmCollectionMillis,
+                    (failure == null) ? "ok" : failure);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package lazyTrees;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Sliding window sales counter per item. Each item owns a ring of time
+ * buckets stored in flat primitive arrays plus a running total of the
+ * buckets inside its window; buckets the window slides past are subtracted
+ * and cleared when the item's next sale or a query reaches a newer time
+ * slot, so windows roll over without a timer.
+ * Sales may arrive out of order; one older than the window ending at the
+ * newest time seen, by a sale or a query, is dropped.
+ * Recording a sale is amortized O(1) and topMovers() reads one total per
+ * item. Items without sales in that window are evicted when the arrays
+ * fill up, so memory is O(items sold within the window * buckets).
+ * @author Myron Pow
+ */
+public class SalesVelocity {
+    private static final int INITIAL_ITEMS = 16;
+
+    private final long bucketMillis;
+    private final int buckets;
+
+    // slot of each item, names are stored lower case to match Item.compareTo
+    private final HashMap<String, Integer> slots = new HashMap<String, Integer>();
+    private String[] names;
+    private int[] counts;       // buckets per item, item i uses [i * buckets, (i + 1) * buckets)
+    private long[] epochs;      // time slot each bucket currently counts
+    private long[] latest;      // newest time slot seen per item
+    private int[] totals;       // sales per item in the window ending at latest
+    private int items;          // slots in use or free
+    private int[] free;         // slots of evicted items
+    private int freeCount;
+    private long clock = -1;    // newest time slot seen
+
+    /**
+     * @param bucketMillis width of one bucket
+     * @param buckets number of buckets in the window
+     */
+    public SalesVelocity(long bucketMillis, int buckets) {
+        if (bucketMillis <= 0 || buckets <= 0)
+            throw new IllegalArgumentException();
+        this.bucketMillis = bucketMillis;
+        this.buckets = buckets;
+        names = new String[INITIAL_ITEMS];
+        counts = new int[INITIAL_ITEMS * buckets];
+        epochs = new long[INITIAL_ITEMS * buckets];
+        latest = new long[INITIAL_ITEMS];
+        totals = new int[INITIAL_ITEMS];
+        free = new int[INITIAL_ITEMS];
+        Arrays.fill(epochs, -1);
+        Arrays.fill(latest, -1);
+    }
+
+    /**
+     * @return window of the last minute in 5 second buckets
+     */
+    public static SalesVelocity lastMinute() {
+        return new SalesVelocity(5000, 12);
+    }
+
+    /**
+     * @return window of the last hour in 1 minute buckets
+     */
+    public static SalesVelocity lastHour() {
+        return new SalesVelocity(60000, 60);
+    }
+
+    /**
+     * @return length of the sliding window
+     */
+    public long windowMillis() {
+        return bucketMillis * buckets;
+    }
+
+    /**
+     * Counts one sale of an item, a sale older than the window ending at
+     * the newest time seen is ignored
+     * @param name item name
+     * @param now time of the sale
+     * @return false if the sale was too old to count
+     */
+    public boolean recordSale(String name, long now) {
+        long epoch = now / bucketMillis;
+        if (epoch <= clock - buckets)
+            return false;
+        clock = Math.max(clock, epoch);
+
+        int slot = slotOf(name);
+        if (epoch > latest[slot])
+            advance(slot, epoch);
+
+        // buckets behind the window are cleared, so taking one over
+        // drops nothing from the total
+        int index = slot * buckets + (int) (epoch % buckets);
+        if (epochs[index] < epoch) {
+            epochs[index] = epoch;
+            counts[index] = 0;
+        }
+        counts[index]++;
+        totals[slot]++;
+        return true;
+    }
+
+    /**
+     * @param name item name
+     * @param now end of the window
+     * @return sales of the item inside the window ending at now
+     */
+    public int salesInWindow(String name, long now) {
+        long epoch = now / bucketMillis;
+        clock = Math.max(clock, epoch);
+        Integer slot = slots.get(name.toLowerCase(Locale.ROOT));
+        return (slot == null) ? 0 : salesInWindow(slot, epoch);
+    }
+
+    /**
+     * @param name item name
+     * @param now end of the window
+     * @return sales per minute averaged over the window
+     */
+    public double ratePerMinute(String name, long now) {
+        return salesInWindow(name, now) * 60000.0 / windowMillis();
+    }
+
+    /**
+     * @param name item name
+     * @param now end of the window
+     * @return sales per hour averaged over the window
+     */
+    public double ratePerHour(String name, long now) {
+        return ratePerMinute(name, now) * 60;
+    }
+
+    /**
+     * Finds the k items with the most sales inside the window from their
+     * running totals: O(items * log k) plus the buckets the window slid past
+     * @param k number of items
+     * @param now end of the window
+     * @return item names, fastest first, items without sales left out
+     */
+    public List<String> topMovers(int k, long now) {
+        final long epoch = now / bucketMillis;
+        clock = Math.max(clock, epoch);
+        final int[] sales = new int[items];
+        for (int slot = 0; slot < items; slot++)
+            if (names[slot] != null)
+                sales[slot] = salesInWindow(slot, epoch);
+
+        // min-heap on sales keeps the best k seen so far
+        PriorityQueue<Integer> best = new PriorityQueue<Integer>(Math.max(k, 1),
+                new Comparator<Integer>() {
+                    public int compare(Integer a, Integer b) {
+                        if (sales[a] != sales[b])
+                            return Integer.compare(sales[a], sales[b]);
+                        return names[b].compareTo(names[a]);
+                    }
+                });
+        for (int slot = 0; slot < items && k > 0; slot++) {
+            if (sales[slot] == 0)
+                continue;
+            if (best.size() < k)
+                best.add(slot);
+            else if (best.comparator().compare(slot, best.peek()) > 0) {
+                best.poll();
+                best.add(slot);
+            }
+        }
+
+        String[] result = new String[best.size()];
+        for (int i = result.length - 1; i >= 0; i--)
+            result[i] = names[best.poll()];
+        return new ArrayList<String>(Arrays.asList(result));
+    }
+
+    /**
+     * Forgets all items and sales
+     */
+    public void clear() {
+        slots.clear();
+        Arrays.fill(names, null);
+        Arrays.fill(counts, 0);
+        Arrays.fill(epochs, -1);
+        Arrays.fill(latest, -1);
+        Arrays.fill(totals, 0);
+        items = 0;
+        freeCount = 0;
+        clock = -1;
+    }
+
+    // private helper methods ----------------------------------------
+
+    /**
+     * Sales in the window ending at epoch: the running total once the
+     * window is slid there, a bucket scan for a window in the item's past
+     */
+    private int salesInWindow(int slot, long epoch) {
+        if (epoch >= latest[slot]) {
+            if (epoch > latest[slot])
+                advance(slot, epoch);
+            return totals[slot];
+        }
+
+        int total = 0;
+        int base = slot * buckets;
+        for (int i = base; i < base + buckets; i++)
+            if (epochs[i] > epoch - buckets && epochs[i] <= epoch)
+                total += counts[i];
+        return total;
+    }
+
+    /**
+     * Slides an item's window forward to end at epoch, subtracting the
+     * buckets it passes from the total; each time slot is passed once
+     */
+    private void advance(int slot, long epoch) {
+        int base = slot * buckets;
+        long last = latest[slot];
+        if (epoch - last >= buckets) {
+            Arrays.fill(counts, base, base + buckets, 0);
+            totals[slot] = 0;
+        } else {
+            for (long e = last + 1; e <= epoch; e++) {
+                int index = base + (int) (e % buckets);
+                totals[slot] -= counts[index];
+                counts[index] = 0;
+            }
+        }
+        latest[slot] = epoch;
+    }
+
+    /**
+     * Looks up or assigns the slot of an item. When the arrays are full,
+     * items without sales in the window are evicted first; the arrays grow
+     * if that frees less than a quarter of them, so evictions stay amortized.
+     */
+    private int slotOf(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        Integer slot = slots.get(key);
+        if (slot != null)
+            return slot;
+
+        if (freeCount == 0 && items == names.length) {
+            evictIdle();
+            if (freeCount < items / 4)
+                grow();
+        }
+        int assigned = (freeCount > 0) ? free[--freeCount] : items++;
+        names[assigned] = key;
+        slots.put(key, assigned);
+        return assigned;
+    }
+
+    /**
+     * Frees the slots of items with no sales in the window ending at clock
+     */
+    private void evictIdle() {
+        for (int slot = 0; slot < items; slot++) {
+            if (names[slot] == null || latest[slot] > clock - buckets)
+                continue;
+            slots.remove(names[slot]);
+            names[slot] = null;
+            int base = slot * buckets;
+            Arrays.fill(counts, base, base + buckets, 0);
+            Arrays.fill(epochs, base, base + buckets, -1);
+            latest[slot] = -1;
+            totals[slot] = 0;
+            free[freeCount++] = slot;
+        }
+    }
+
+    private void grow() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        counts = Arrays.copyOf(counts, capacity * buckets);
+        int oldLength = epochs.length;
+        epochs = Arrays.copyOf(epochs, capacity * buckets);
+        Arrays.fill(epochs, oldLength, epochs.length, -1);
+        latest = Arrays.copyOf(latest, capacity);
+        Arrays.fill(latest, items, capacity, -1);
+        totals = Arrays.copyOf(totals, capacity);
+        free = Arrays.copyOf(free, capacity);
+    }
+}
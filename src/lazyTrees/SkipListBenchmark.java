@@ -0,0 +1,229 @@
+package lazyTrees;
+
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares ConcurrentLazySkipList against a LazySearchTree behind a single
+ * lock. Every thread acts as a checkout register: mostly lookups, some
+ * items selling out (lazy remove) and some restocks (insert/revive).
+ * A second run drives whole SuperMarkets the same way, half restocks and
+ * half buys with cleanInventory() after each, and checks that no count
+ * update was lost.
+ * Usage: SkipListBenchmark [maxThreads] [opsPerThread] [keys]
+ * @author Myron Pow
+ */
+public class SkipListBenchmark {
+    // register mix in percent, remainder are lookups
+    private static final int REMOVE_PERCENT = 10;
+    private static final int INSERT_PERCENT = 10;
+
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = (args.length > 0) ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors();
+        int ops = (args.length > 1) ? Integer.parseInt(args[1]) : 500000;
+        int keys = (args.length > 2) ? Integer.parseInt(args[2]) : 100000;
+
+        String[] names = new String[keys];
+        for (int i = 0; i < keys; i++)
+            names[i] = "item" + i;
+
+        System.out.printf("keys = %d, ops/thread = %d%n", keys, ops);
+        System.out.printf("%8s %16s %16s%n", "threads", "locked tree", "skip list");
+
+        // warm up both backends once before measuring
+        run(new LockedLazyStore<String>(new LazySearchTree<String>()), names, 1, ops);
+        run(new ConcurrentLazySkipList<String>(), names, 1, ops);
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double locked = run(new LockedLazyStore<String>(new LazySearchTree<String>()),
+                    names, threads, ops);
+            double skip = run(new ConcurrentLazySkipList<String>(), names, threads, ops);
+            System.out.printf("%8d %12.0f op/s %12.0f op/s%n", threads, locked, skip);
+        }
+
+        System.out.printf("%nSuperMarket registers, collection policy cost%n");
+        System.out.printf("%8s %16s %16s%n", "threads", "tree", "skip list");
+        runMarket(market(new LazySearchTree<Item>()), names, 1, ops);
+        runMarket(market(new ConcurrentLazySkipList<Item>()), names, 1, ops);
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double tree = runMarket(market(new LazySearchTree<Item>()), names, threads, ops);
+            double skip = runMarket(market(new ConcurrentLazySkipList<Item>()), names, threads, ops);
+            System.out.printf("%8d %12.0f op/s %12.0f op/s%n", threads, tree, skip);
+        }
+    }
+
+    /**
+     * Fills the store with a shuffled copy of the keys, then runs all registers
+     * @return operations per second over all threads
+     */
+    private static double run(final LazyStore<String> store, final String[] names,
+                              int threads, final int ops) throws InterruptedException {
+        String[] shuffled = names.clone();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = shuffled.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String tmp = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = tmp;
+        }
+        for (String name : shuffled)
+            store.insert(name);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < ops; i++) {
+                        String name = names[random.nextInt(names.length)];
+                        int op = random.nextInt(100);
+                        if (op < REMOVE_PERCENT)
+                            store.remove(name);
+                        else if (op < REMOVE_PERCENT + INSERT_PERCENT)
+                            store.insert(name);
+                        else
+                            store.contains(name);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        return (double) threads * ops / (elapsed / 1e9);
+    }
+
+    private static SuperMarket market(LazyStore<Item> inventory) {
+        SuperMarket market = new SuperMarket(inventory, CollectionPolicy.parse("cost"));
+        market.setVerbose(false);
+        return market;
+    }
+
+    /**
+     * Stocks one of each item, then runs all registers against the market
+     * @return operations per second over all threads
+     */
+    private static double runMarket(final SuperMarket market, final String[] names,
+                                    int threads, final int ops) throws InterruptedException {
+        for (String name : names)
+            market.addToInventory(name);
+
+        // stock kept by the registers, compared against the item counts afterwards
+        final AtomicLong expected = new AtomicLong(names.length);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long stock = 0;
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < ops; i++) {
+                        String name = names[random.nextInt(names.length)];
+                        if (random.nextBoolean()) {
+                            market.addToInventory(name);
+                            stock++;
+                        } else {
+                            try {
+                                market.removeFromInventory(name);
+                                stock--;
+                            } catch (NoSuchElementException e) {
+                                // out of stock
+                            }
+                        }
+                        market.cleanInventory("");
+                    }
+                    expected.addAndGet(stock);
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        final long[] counted = {0};
+        market.getInventory().traverseSoft(new Traverser<Item>() {
+            public void visit(Item x) {
+                counted[0] += x.getCount();
+            }
+        });
+        if (counted[0] != expected.get())
+            throw new IllegalStateException("lost count updates: counted " + counted[0]
+                    + ", expected " + expected.get());
+        return (double) threads * ops / (elapsed / 1e9);
+    }
+}
+
+/**
+ * Wraps a lazy store so every operation holds one lock
+ */
+class LockedLazyStore<E extends Comparable< ? super E > > implements ConcurrentLazyStore<E> {
+    private final LazyStore<E> store;
+
+    LockedLazyStore(LazyStore<E> store) {
+        this.store = store;
+    }
+
+    public synchronized boolean empty() { return store.empty(); }
+    public synchronized int size() { return store.size(); }
+    public synchronized int sizeHard() { return store.sizeHard(); }
+    public synchronized long deadComparisons() { return store.deadComparisons(); }
+    public synchronized void clear() { store.clear(); }
+    public synchronized int showHeight() { return store.showHeight(); }
+    public synchronized E findMin() { return store.findMin(); }
+    public synchronized E findMinHard() { return store.findMinHard(); }
+    public synchronized E findMax() { return store.findMax(); }
+    public synchronized E findMaxHard() { return store.findMaxHard(); }
+    public synchronized E find(E x) { return store.find(x); }
+    public synchronized boolean contains(E x) { return store.contains(x); }
+    public synchronized boolean insert(E x) { return store.insert(x); }
+    public synchronized boolean remove(E x) { return store.remove(x); }
+    public synchronized boolean removeHard(E x) { return store.removeHard(x); }
+    public synchronized boolean collectGarbage() { return store.collectGarbage(); }
+
+    public synchronized <F extends Traverser<? super E>>
+    void traverseSoft(F func) { store.traverseSoft(func); }
+
+    public synchronized <F extends Traverser<? super E>>
+    void traverseHard(F func) { store.traverseHard(func); }
+
+    public synchronized <F extends BoundedTraverser<? super E>>
+    int traverseSoft(F func, E from, boolean fromInclusive, E to, boolean toInclusive, int limit) {
+        return store.traverseSoft(func, from, fromInclusive, to, toInclusive, limit);
+    }
+
+    public synchronized <F extends BoundedTraverser<? super E>>
+    int traverseHard(F func, E from, boolean fromInclusive, E to, boolean toInclusive, int limit) {
+        return store.traverseHard(func, from, fromInclusive, to, toInclusive, limit);
+    }
+
+    public synchronized <F extends BoundedTraverser<? super E>>
+    int nextPage(RangeCursor<E> cursor, F func, int limit) {
+        return store.nextPage(cursor, func, limit);
+    }
+
+    public synchronized <F extends BoundedTraverser<? super E>>
+    int nextPageHard(RangeCursor<E> cursor, F func, int limit) {
+        return store.nextPageHard(cursor, func, limit);
+    }
+}
@@ -0,0 +1,114 @@
+package lazyTrees;
+
+
+import java.util.Random;
+
+/**
+ * Compares the plain, splay and skip list stores on skewed (Zipfian)
+ * register traffic: lookups, sell-outs and restocks of a few hot items.
+ * The skip list stands in for a balanced structure.
+ * Usage: SplayBenchmark [keys] [ops] [skew...]
+ * @author Myron Pow
+ */
+public class SplayBenchmark {
+    private static final int REMOVE_PERCENT = 10;
+    private static final int INSERT_PERCENT = 10;
+    private static final int COLLECT_EVERY = 10000;
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) {
+        int keys = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        int ops = (args.length > 1) ? Integer.parseInt(args[1]) : 2000000;
+        double[] skews = {0.0, 0.8, 1.0, 1.2};
+        if (args.length > 2) {
+            skews = new double[args.length - 2];
+            for (int i = 2; i < args.length; i++)
+                skews[i - 2] = Double.parseDouble(args[i]);
+        }
+
+        System.out.printf("keys = %d, ops = %d, best of %d runs%n", keys, ops, RUNS);
+        System.out.printf("%6s %22s %22s %22s%n", "skew", "plain tree", "splay tree", "skip list");
+
+        for (double skew : skews) {
+            int[] trace = trace(keys, ops, skew, new Random(42));
+            String[] names = names(keys, new Random(7));
+            System.out.printf("%6.2f %22s %22s %22s%n", skew,
+                    best(new LazySearchTree<String>(), names, trace),
+                    best(new SplayLazySearchTree<String>(), names, trace),
+                    best(new ConcurrentLazySkipList<String>(), names, trace));
+        }
+    }
+
+    /**
+     * Zipfian key sequence, ranks are mapped to random keys so the hot
+     * items are spread over the key space
+     */
+    private static int[] trace(int keys, int ops, double skew, Random random) {
+        int[] rankToKey = new int[keys];
+        for (int i = 0; i < keys; i++)
+            rankToKey[i] = i;
+        shuffle(rankToKey, random);
+
+        ZipfSampler sampler = new ZipfSampler(keys, skew, random);
+        int[] trace = new int[ops];
+        for (int i = 0; i < ops; i++)
+            trace[i] = rankToKey[sampler.next()];
+        return trace;
+    }
+
+    /**
+     * Item names, in random insertion order
+     */
+    private static String[] names(int keys, Random random) {
+        int[] order = new int[keys];
+        for (int i = 0; i < keys; i++)
+            order[i] = i;
+        shuffle(order, random);
+        String[] names = new String[keys];
+        for (int i = 0; i < keys; i++)
+            names[i] = String.format("item%07d", order[i]);
+        return names;
+    }
+
+    private static void shuffle(int[] array, Random random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    /**
+     * Runs the trace several times on a fresh store
+     * @return best throughput and height at the end of the run
+     */
+    private static String best(LazyStore<String> store, String[] names, int[] trace) {
+        double best = 0;
+        int height = 0;
+        for (int run = 0; run < RUNS; run++) {
+            store.clear();
+            for (String name : names)
+                store.insert(name);
+
+            long begin = System.nanoTime();
+            for (int i = 0; i < trace.length; i++) {
+                String name = names[trace[i]];
+                int op = i % 100;
+                if (op < REMOVE_PERCENT)
+                    store.remove(name);
+                else if (op < REMOVE_PERCENT + INSERT_PERCENT)
+                    store.insert(name);
+                else
+                    store.contains(name);
+                if (i % COLLECT_EVERY == COLLECT_EVERY - 1)
+                    store.collectGarbage();
+            }
+            long elapsed = System.nanoTime() - begin;
+
+            best = Math.max(best, trace.length / (elapsed / 1e9));
+            height = store.showHeight();
+        }
+        return String.format("%10.0f op/s h=%d", best, height);
+    }
+}
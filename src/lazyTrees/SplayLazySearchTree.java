@@ -0,0 +1,158 @@
+package lazyTrees;
+
+
+import java.util.NoSuchElementException;
+
+/**
+ * Self-adjusting LazySearchTree. find, contains, insert and remove splay
+ * the touched node to the root (top-down splaying), so items that sell
+ * often stay near the top. "deleted" marks travel with their nodes, so
+ * soft/hard sizes, revival and collectGarbage behave as in LazySearchTree.
+ * @author Myron Pow
+ */
+public class SplayLazySearchTree<E extends Comparable< ? super E > >
+        extends LazySearchTree<E> {
+    // scratch node collecting the left/right trees during a splay
+    private LazySTNode mHeader = new LazySTNode();
+
+    /**
+     * Creates empty splay tree
+     */
+    public SplayLazySearchTree() {
+        super();
+    }
+
+    public E find(E x) {
+        mRoot = splay(mRoot, x);
+        if (mRoot == null || mRoot.deleted || x.compareTo(mRoot.data) != 0)
+            throw new NoSuchElementException();
+        return mRoot.data;
+    }
+
+    public boolean contains(E x) {
+        mRoot = splay(mRoot, x);
+        return mRoot != null && !mRoot.deleted && x.compareTo(mRoot.data) == 0;
+    }
+
+    /**
+     * Splays x to the root, then either revives it or splits the tree
+     * around a new root holding x
+     * @param x data to be wrapped in node and added to tree
+     * @return boolean value based on if any operation is done
+     */
+    public boolean insert(E x) {
+        int compareResult;
+
+        if (mRoot == null) {
+            mRoot = new LazySTNode(x, null, null);
+            mSize++;
+            mSizeHard++;
+            return true;
+        }
+
+        mRoot = splay(mRoot, x);
+        compareResult = x.compareTo(mRoot.data);
+        if (compareResult == 0) {
+            if (!mRoot.deleted)
+                return false;
+            mRoot.deleted = false;
+            mSize++;
+            return true;
+        }
+
+        LazySTNode newNode;
+        if (compareResult < 0) {
+            newNode = new LazySTNode(x, mRoot.lftChild, mRoot);
+            mRoot.lftChild = null;
+        } else {
+            newNode = new LazySTNode(x, mRoot, mRoot.rtChild);
+            mRoot.rtChild = null;
+        }
+        mRoot = newNode;
+        mSize++;
+        mSizeHard++;
+        return true;
+    }
+
+    /**
+     * Lazily removes data, leaving its node at the root
+     * @param x data to delete
+     * @return boolean value based on if operation is done
+     */
+    public boolean remove(E x) {
+        mRoot = splay(mRoot, x);
+        if (mRoot == null || mRoot.deleted || x.compareTo(mRoot.data) != 0)
+            return false;
+        mRoot.deleted = true;
+        mSize--;
+        return true;
+    }
+
+    // private helper methods ----------------------------------------
+
+    /**
+     * Top-down splay: brings the node equal to x, or the last node on its
+     * search path, to the root
+     * @param root tree to splay
+     * @param x data to search for
+     * @return new root
+     */
+    protected LazySTNode splay(LazySTNode root, E x) {
+        LazySTNode leftTreeMax, rightTreeMin, temp;
+        int compareResult;
+
+        if (root == null)
+            return null;
+
+        mHeader.lftChild = mHeader.rtChild = null;
+        leftTreeMax = rightTreeMin = mHeader;
+
+        while (true) {
+            if (root.deleted)
+                mDeadComparisons++;
+            compareResult = x.compareTo(root.data);
+            if (compareResult < 0) {
+                if (root.lftChild == null)
+                    break;
+                if (x.compareTo(root.lftChild.data) < 0) {
+                    // zig-zig: rotate with left child
+                    temp = root.lftChild;
+                    root.lftChild = temp.rtChild;
+                    temp.rtChild = root;
+                    root = temp;
+                    if (root.lftChild == null)
+                        break;
+                }
+                // link right
+                rightTreeMin.lftChild = root;
+                rightTreeMin = root;
+                root = root.lftChild;
+            } else if (compareResult > 0) {
+                if (root.rtChild == null)
+                    break;
+                if (x.compareTo(root.rtChild.data) > 0) {
+                    // zig-zig: rotate with right child
+                    temp = root.rtChild;
+                    root.rtChild = temp.lftChild;
+                    temp.lftChild = root;
+                    root = temp;
+                    if (root.rtChild == null)
+                        break;
+                }
+                // link left
+                leftTreeMax.rtChild = root;
+                leftTreeMax = root;
+                root = root.rtChild;
+            } else
+                break;
+        }
+
+        // reassemble
+        leftTreeMax.rtChild = root.lftChild;
+        rightTreeMin.lftChild = root.rtChild;
+        root.lftChild = mHeader.rtChild;
+        root.rtChild = mHeader.lftChild;
+        mHeader.lftChild = mHeader.rtChild = null;
+        return root;
+    }
+}
@@ -2,8 +2,18 @@ package lazyTrees;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
@@ -22,22 +32,71 @@ public class SuperMarket
 	PrintObject<Item> printObject = new PrintObject<Item>();
 
 	// The data structure, which we use to add and remove items.
-	private LazySearchTree<Item> inventory;	
+	private LazyStore<Item> inventory;	
 
 	// The maximum number of items soft removed before calling collectGarbage()
+	// under the default FixedCount collection policy.
 	// TODO: Test your implementation with varying number of items to be deleted
 	//       before calling garbage collection.
 	private static final int GARBAGE_COLLECTION_THRESHOLD = 4;
 
-	// Keeps track of the count of soft deleted item
-	private int countDeleted;
+	// Serializes access to a store that is not thread safe, null for a ConcurrentLazyStore.
+	// Registers on a concurrent store only lock the item they change, and each index
+	// is guarded by its own monitor.
+	private final ReentrantLock storeLock;
+
+	// Decides when cleanInventory() collects, keeps track of soft deleted items
+	private GarbageCollectionScheduler scheduler;
+
+	// Items ordered by count, null unless enabled with enableLowStockIndex()
+	private volatile LowStockIndex lowStock;
+
+	// Sales per item over a sliding window, null unless enabled with enableSalesVelocity()
+	private volatile SalesVelocity velocity;
+
+	// Item names for prefix search, null unless enabled with enableNameIndex()
+	private volatile NameTrie nameIndex;
+
+	// Names of all items ever stocked, in Item order. Unlike "deleted" nodes they
+	// survive garbage collection, so ChainInventory can tell which items ran out.
+	private final ConcurrentSkipListSet<String> stockedNames = 
+			new ConcurrentSkipListSet<String>(String.CASE_INSENSITIVE_ORDER);
+
+	// Whether cleanInventory() prints the inventory after each collection
+	private boolean verbose = true;
+
+	// Checks for idle time in the background, null unless started with startIdleCollector().
+	// The market's own monitor only guards this and enabling the indexes.
+	private ScheduledExecutorService idleCollector;
 
 	/**
 	 * Instantiates inventory to be a LazySearchTree of Item objects.
 	 */
 	public SuperMarket()
 	{
-		inventory = new LazySearchTree<Item>();
+		this(new LazySearchTree<Item>());
+	}
+
+	/**
+	 * Uses the given store as inventory, e.g. a ConcurrentLazySkipList for
+	 * stores with many registers.
+	 * @param inventory	An empty lazy store of Item objects.
+	 */
+	public SuperMarket(LazyStore<Item> inventory)
+	{
+		this(inventory, new CollectionPolicy.FixedCount(GARBAGE_COLLECTION_THRESHOLD));
+	}
+
+	/**
+	 * Uses the given store as inventory and collects its garbage by the given policy.
+	 * @param inventory	An empty lazy store of Item objects.
+	 * @param policy	Decides when cleanInventory() collects garbage.
+	 */
+	public SuperMarket(LazyStore<Item> inventory, CollectionPolicy policy)
+	{
+		this.inventory = inventory;
+		this.storeLock = (inventory instanceof ConcurrentLazyStore) ? null : new ReentrantLock();
+		this.scheduler = new GarbageCollectionScheduler(inventory, policy);
 	}
 
 	/**
@@ -48,32 +107,26 @@ public class SuperMarket
 	public void addToInventory(String item)
 	{
 		// Create a temporary object to hold the item.
+		// NOTE: It enters the tree with a count of 0 and is counted like a revived item.
 		Item tmp = new Item(item);
+		tmp.decrementCount();
 
-		// Check if the item is in the inventory tree.
-		boolean isFound = inventory.contains(tmp);
-
-		// If the item is not found, add the temporary object as another node (category) to the tree.
-		if (!isFound)
+		lockStore();
+		try
 		{
+			// If the item is not in stock, add the temporary object as another node (category) 
+			// to the tree, or revive the lazily deleted node, and try again.
 			// TODO: Modify insert method to work with lazy deletion such that it updates
 			//       both hard and soft sizes. 
-			inventory.insert(tmp);
-
-			// NOTE: Need to check if the item was lazily deleted, then we need to increment the count
-			Item found = inventory.find(tmp);
-			if (found.getCount() == 0)
-			{
-				found.incrementCount();
-			}
-			return;
+			while (!restock(tmp))
+				inventory.insert(tmp);
+		}
+		finally
+		{
+			unlockStore();
 		}
 
-		// If the item is found, increase the number of items in that item category.
-		Item found = inventory.find(tmp);
-
-		// item was previously in tree, so increment the count
-		found.incrementCount();
+		scheduler.recordOperation(false);
 	}
 
 	/**
@@ -84,96 +137,656 @@ public class SuperMarket
 	public void removeFromInventory(String item)
 	{
 		Item tmp = new Item(item);
-		boolean isFound = inventory.contains(tmp);
+		boolean soldOut;
+
+		lockStore();
+		try
+		{
+			Item found = findInStock(tmp);
+
+			// check if the item exists in the inventory disregarding lazy deletion
+			if (found == null)
+			{
+				throw new NoSuchElementException();
+			}
+
+			synchronized (found)
+			{
+				int count = found.getCount();
+
+				// if the items has zero left in stock, 
+				// then treat it as if it does not exist in the tree.
+				if (count == 0)
+				{
+					throw new NoSuchElementException();
+				}
+
+				found.decrementCount();
+				soldOut = (count == 1);
 
-		// check if the item exists in the inventory disregarding lazy deletion
-		if (!isFound)
+				// out of stock items leave the indexes along with the inventory.
+				// NOTE: This happens while the item is still in stock, so that it 
+				//       cannot be collected and restocked as a new item in between.
+				LowStockIndex low = lowStock;
+				if (low != null)
+					synchronized (low)
+					{
+						if (soldOut)
+							low.remove(found, count);
+						else
+							low.update(found, count);
+					}
+
+				NameTrie names = nameIndex;
+				if (soldOut && names != null)
+					synchronized (names)
+					{	names.remove(item);	}
+
+				// if the item had one left in stock, 
+				// then lazy delete it in the tree by marking it as "deleted".
+				if (soldOut)
+					inventory.remove(tmp);
+			}
+		}
+		finally
 		{
-			throw new NoSuchElementException();
+			unlockStore();
 		}
 
-		Item found = inventory.find(tmp);
+		// keep track of how many items have been deleted so far.
+		// NOTE: The collection policy looks at this when we call cleanInventory()
+		//       to garbage collect the soft deleted nodes from the tree.
+		scheduler.recordOperation(soldOut);
+
+		SalesVelocity sales = velocity;
+		if (sales != null)
+			synchronized (sales)
+			{	sales.recordSale(item, System.currentTimeMillis());	}
+	}
 
-		// if the items has zero left in stock, 
-		// then treat it as if it does not exist in the tree.
-		if (found.getCount() == 0)
+	/**
+	 * Starts indexing item names for prefix search and autocomplete.
+	 */
+	public synchronized void enableNameIndex()
+	{
+		if (nameIndex != null)
+			return;
+
+		final NameTrie index = new NameTrie();
+		lockStore();
+		try
 		{
-			throw new NoSuchElementException();
+			// registers reaching the index wait until it is built, then apply their 
+			// changes on top
+			synchronized (index)
+			{
+				nameIndex = index;
+				inventory.traverseHard(new Traverser<Item>()
+				{
+					public void visit(Item x)
+					{
+						index.put(x);
+
+						// items with nothing left in stock are lazily deleted in the inventory
+						if (x.getCount() == 0)
+							index.remove(x.getName());
+					}
+				});
+			}
 		}
-		// if the item has one left in stock, 
-		// then decrement its count and lazy delete it in the tree. 
-		else if (found.getCount() == 1)
+		finally
 		{
-			found.decrementCount();
+			unlockStore();
+		}
+	}
 
-			// Lazy deletes a node in the tree by marking it as "deleted".
-			inventory.remove(tmp);	
+	/**
+	 * Visits the items in stock whose name starts with prefix, in lexical order.
+	 * @param prefix	Start of the item name, case is ignored.
+	 * @param func		Functor called on each item.
+	 * @return	Number of items visited.
+	 */
+	public int itemsStartingWith(String prefix, Traverser<? super Item> func)
+	{
+		NameTrie index = nameIndex;
+		if (index == null)
+			throw new IllegalStateException("name index not enabled");
 
-			// keep track of how many items have been deleted so far.
-			// NOTE: Once this count reaches a threshold, we call cleanInventory()
-			//       to garbage collect the soft deleted nodes from the tree.
-			countDeleted++;
+		final List<Item> items = new ArrayList<Item>();
+		synchronized (index)
+		{
+			index.traverseSoft(prefix, new Traverser<Item>()
+			{
+				public void visit(Item x)
+				{	items.add(x);	}
+			});
 		}
-		// otherwise, simply decrement its count.
-		else
+		return visitAll(items, func);
+	}
+
+	/**
+	 * Suggests names of items in stock that start with prefix.
+	 * @param prefix	Start of the item name, case is ignored.
+	 * @param limit		Maximum number of suggestions.
+	 * @return	Item names in lexical order.
+	 */
+	public List<String> autocomplete(String prefix, int limit)
+	{
+		NameTrie index = nameIndex;
+		if (index == null)
+			throw new IllegalStateException("name index not enabled");
+
+		synchronized (index)
+		{	return index.complete(prefix, limit);	}
+	}
+
+	/**
+	 * Starts counting sales per item over a sliding window.
+	 * @param tracker	Window to record sales into, e.g. SalesVelocity.lastHour().
+	 */
+	public synchronized void enableSalesVelocity(SalesVelocity tracker)
+	{
+		velocity = tracker;
+	}
+
+	/**
+	 * Stops counting sales, buys no longer pay for the bookkeeping.
+	 */
+	public synchronized void disableSalesVelocity()
+	{
+		velocity = null;
+	}
+
+	/**
+	 * Display the items sold most often within the sales window.
+	 * @param message	Additional details about the state.
+	 * @param k			Number of items to display.
+	 */
+	public void showFastestMovers(String message, int k)
+	{
+		System.out.println("\n" + message);
+
+		SalesVelocity sales = velocity;
+		if (sales == null)
+		{
+			System.out.println("Warning: sales velocity not enabled!");
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		synchronized (sales)
+		{
+			for (String name : sales.topMovers(k, now))
+				System.out.printf("%s: %.1f/min  ", name, sales.ratePerMinute(name, now));
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Starts keeping items ordered by count, so that the items closest to 
+	 * selling out can be listed without traversing the whole inventory.
+	 */
+	public synchronized void enableLowStockIndex()
+	{
+		if (lowStock != null)
+			return;
+
+		final LowStockIndex index = new LowStockIndex();
+		lockStore();
+		try
 		{
-			found.decrementCount();
+			// registers reaching the index wait until it is built, then apply their 
+			// changes on top
+			synchronized (index)
+			{
+				lowStock = index;
+				inventory.traverseSoft(new Traverser<Item>()
+				{
+					public void visit(Item x)
+					{
+						// a revived item is added once it is counted
+						if (x.getCount() > 0)
+							index.add(x);
+					}
+				});
+			}
+		}
+		finally
+		{
+			unlockStore();
 		}
 	}
 
 	/**
-	 * When the soft deleted items reaches the threshold, hard remove them from the tree structure. 
+	 * Display the items with the lowest count, lowest first.
+	 * @param message	Additional details about the state.
+	 * @param n			Number of items to display.
+	 */
+	public void showLowStock(String message, int n)
+	{
+		System.out.println("\n" + message);
+
+		if (lowStock == null)
+		{
+			System.out.println("Warning: low stock index not enabled!");
+			return;
+		}
+
+		lowestItems(n, printObject);
+		System.out.println();
+	}
+
+	/**
+	 * Visits the n items with the lowest count, lowest first.
+	 * @param n			Number of items to visit.
+	 * @param func		Functor called on each item.
+	 * @return	Number of items visited.
+	 */
+	public int lowestItems(int n, Traverser<? super Item> func)
+	{
+		LowStockIndex index = lowStock;
+		if (index == null)
+			throw new IllegalStateException("low stock index not enabled");
+
+		final List<Item> items = new ArrayList<Item>();
+		synchronized (index)
+		{
+			index.lowest(n, new Traverser<Item>()
+			{
+				public void visit(Item x)
+				{	items.add(x);	}
+			});
+		}
+		return visitAll(items, func);
+	}
+
+	/**
+	 * Visits all items with fewer than threshold left in stock, lowest first.
+	 * @param threshold	Exclusive upper bound on the count.
+	 * @param func		Functor called on each item.
+	 * @return	Number of items visited.
+	 */
+	public int itemsBelow(int threshold, Traverser<? super Item> func)
+	{
+		LowStockIndex index = lowStock;
+		if (index == null)
+			throw new IllegalStateException("low stock index not enabled");
+
+		final List<Item> items = new ArrayList<Item>();
+		synchronized (index)
+		{
+			index.below(threshold, new Traverser<Item>()
+			{
+				public void visit(Item x)
+				{	items.add(x);	}
+			});
+		}
+		return visitAll(items, func);
+	}
+
+	/**
+	 * When the collection policy says so, hard remove soft deleted items from the tree structure. 
 	 * @return	Whether garage collection was successful.
 	 */
 	public boolean cleanInventory(String message){
 
-		if (countDeleted < GARBAGE_COLLECTION_THRESHOLD) 
-			return false;
+		boolean result;
+		lockStore();
+		try
+		{
+			if (!scheduler.shouldCollect()) 
+				return false;
+
+			// TODO: Hard remove nodes marked as "deleted" from the tree.
+			result = collectGarbage();
+		}
+		finally
+		{
+			unlockStore();
+		}
 
-		// TODO: Hard remove nodes marked as "deleted" from the tree.
-		boolean result = inventory.collectGarbage();
+		if (!verbose)
+			return result;
 
 		System.out.println("\n" + message);
 		System.out.println("calling garbage collection...");
 
 		displayInventoryState("inventory after garbage collection:", true);
 
-		countDeleted = 0;
-
 		return result;
 	}
 
 
-	/** 
-	 * Display the first item and last item of the soft tree in lexical order.
+	/**
+	 * Hard removes all soft deleted items now, from the inventory and from the 
+	 * name index. Every collection goes through here.
+	 * @return	Whether garbage collection was successful.
 	 */
-	public void showFirstAndLastItem(String message)
+	public boolean collectGarbage()
 	{
-		System.out.println("\n" + message);
+		lockStore();
+		try
+		{
+			boolean result = scheduler.collect();
+
+			NameTrie names = nameIndex;
+			if (names != null)
+				synchronized (names)
+				{	names.collectGarbage();	}
+
+			return result;
+		}
+		finally
+		{
+			unlockStore();
+		}
+	}
+
+	/**
+	 * Checks every period whether the collection policy wants to collect, with the 
+	 * time since the last inventory operation, so an idle store is collected without 
+	 * any traffic. Collects under the same locks as the registers.
+	 * @param periodMillis	Time between checks.
+	 */
+	public synchronized void startIdleCollector(long periodMillis)
+	{
+		if (idleCollector != null)
+			return;
+
+		idleCollector = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "supermarket-idle-collector");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		idleCollector.scheduleWithFixedDelay(new Runnable()
+		{
+			public void run()
+			{	collectIfIdle();	}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the idle collector if running, and waits for a check or collection
+	 * in progress to finish.
+	 */
+	public synchronized void stopIdleCollector()
+	{
+		if (idleCollector == null)
+			return;
 
-		// TODO: Modify the protected methods findMin() and findMax() to implement lazy deletion. 
-		//       Searches from the root of the tree and returns the minimum and maximum node that 
-		//       has NOT been "deleted". 
+		idleCollector.shutdownNow();
 		try
 		{
-			Item min = inventory.findMin();
-			System.out.println ( "First item: " + min.toString());
-		} 
-		catch (Exception NoSuchElementException)
+			while (!idleCollector.awaitTermination(1, TimeUnit.SECONDS))
+				;
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		idleCollector = null;
+	}
+
+	/**
+	 * Turns the output of cleanInventory() on or off, e.g. for replaying large logs.
+	 * @param verbose	Whether to print the inventory after each collection.
+	 */
+	public void setVerbose(boolean verbose)
+	{	this.verbose = verbose;	}
+
+	/**
+	 * Replaces the policy deciding when cleanInventory() collects garbage.
+	 * @param policy	e.g. CollectionPolicy.parse("cost").
+	 */
+	public void setCollectionPolicy(CollectionPolicy policy)
+	{	scheduler.setPolicy(policy);	}
+
+	/**
+	 * Get the scheduler applying the collection policy, which reports its decisions
+	 * @return	the garbage collection scheduler.
+	 */
+	public GarbageCollectionScheduler getScheduler()
+	{	return scheduler;	}
+
+	/**
+	 * Get the number of garbage collections run by cleanInventory()
+	 * @return	number of collections so far.
+	 */
+	public int getCollections()
+	{	return scheduler.getCollections();	}
+
+	/**
+	 * Get the time spent in garbage collection by cleanInventory()
+	 * @return	total nanoseconds spent collecting.
+	 */
+	public long getCollectionNanos()
+	{	return scheduler.getCollectionNanos();	}
+
+	/**
+	 * Get the longest single garbage collection run by cleanInventory()
+	 * @return	nanoseconds of the longest collection.
+	 */
+	public long getMaxCollectionNanos()
+	{	return scheduler.getMaxCollectionNanos();	}
+
+	/**
+	 * Adds one to the count of an item in the soft inventory. The count and the
+	 * indexes change as one step under the item's lock, so concurrent registers 
+	 * neither lose updates nor restock an item that is being sold out.
+	 * @param tmp	Temporary object with the item's name.
+	 * @return	false if the item is not in stock and must be inserted or revived first.
+	 */
+	private boolean restock(Item tmp)
+	{
+		Item found = findInStock(tmp);
+		if (found == null)
+			return false;
+
+		synchronized (found)
+		{
+			int count = found.getCount();
+
+			// a count of 0 is a revived item that is not counted yet, unless it 
+			// was sold out and lazily deleted since the lookup
+			if (count == 0 && findInStock(tmp) != found)
+				return false;
+
+			found.incrementCount();
+
+			LowStockIndex low = lowStock;
+			if (low != null)
+				synchronized (low)
+				{	low.update(found, count);	}
+
+			NameTrie names = nameIndex;
+			if (count == 0 && names != null)
+				synchronized (names)
+				{	names.put(found);	}
+
+			if (count == 0)
+				stockedNames.add(found.getName());
+		}
+		return true;
+	}
+
+	/**
+	 * Looks up an item in the soft inventory.
+	 * @param tmp	Temporary object with the item's name.
+	 * @return	the stored item, or null if it is not in stock.
+	 */
+	private Item findInStock(Item tmp)
+	{
+		if (!inventory.contains(tmp))
+			return null;
+
+		try
+		{	return inventory.find(tmp);	}
+		catch (NoSuchElementException ex)
+		{	return null;	}	// sold out since contains()
+	}
+
+	/**
+	 * Hands items copied out of an index to a functor, after the index lock is 
+	 * released, so the functor may update the market.
+	 */
+	private static int visitAll(List<Item> items, Traverser<? super Item> func)
+	{
+		for (Item x : items)
+			func.visit(x);
+		return items.size();
+	}
+
+	/**
+	 * Collects when the policy says so, given how long the store has been idle
+	 */
+	private void collectIfIdle()
+	{
+		lockStore();
+		try
 		{
-			System.out.println("Warning: minimum element not found!");
+			if (scheduler.shouldCollectIdle())
+				collectGarbage();
 		}
+		finally
+		{
+			unlockStore();
+		}
+	}
 
+	/**
+	 * Takes the store lock unless the store is thread safe on its own.
+	 */
+	private void lockStore()
+	{
+		if (storeLock != null)
+			storeLock.lock();
+	}
+
+	private void unlockStore()
+	{
+		if (storeLock != null)
+			storeLock.unlock();
+	}
+
+	/**
+	 * Count of one item in stock, read under the store lock.
+	 * @param name	Item name.
+	 * @return	the count, 0 if the item is not in stock.
+	 */
+	int stockOf(String name)
+	{
+		lockStore();
 		try
 		{
-			Item max = inventory.findMax();
-			System.out.println ( "Last item: " + max.toString());
-		} 
-		catch (Exception NoSuchElementException)
+			Item found = findInStock(new Item(name));
+			return (found == null) ? 0 : found.getCount();
+		}
+		finally
 		{
-			System.out.println("Warning: maximum element not found!");
+			unlockStore();
 		}
+	}
 
+	/**
+	 * Smallest or largest item in stock, read under the store lock.
+	 * @param min	true for the smallest item.
+	 * @return	the item, or null if nothing is in stock.
+	 */
+	Item firstOrLastItem(boolean min)
+	{
+		lockStore();
+		try
+		{
+			if (inventory.empty())
+				return null;
+			return min ? inventory.findMin() : inventory.findMax();
+		}
+		catch (NoSuchElementException ex)
+		{
+			return null;	// sold out since empty()
+		}
+		finally
+		{
+			unlockStore();
+		}
+	}
+
+	/**
+	 * Reads the next page of the soft inventory under the store lock.
+	 * @param cursor	Position to resume from, advanced past the page.
+	 * @param func		Functor called on each item of the page.
+	 * @param limit		Page size.
+	 * @return	Number of items visited.
+	 */
+	int nextPage(RangeCursor<Item> cursor, BoundedTraverser<? super Item> func, int limit)
+	{
+		lockStore();
+		try
+		{
+			return inventory.nextPage(cursor, func, limit);
+		}
+		finally
+		{
+			unlockStore();
+		}
+	}
+
+	/**
+	 * Names of all items this store has ever stocked, whether or not they are
+	 * in stock or still in the tree.
+	 * @return	read only view in Item order, safe to iterate during updates.
+	 */
+	NavigableSet<String> getStockedNames()
+	{	return Collections.unmodifiableNavigableSet(stockedNames);	}
+
+	/**
+	 * Get the store holding the inventory
+	 * @return	the lazy store of Item objects.
+	 */
+	LazyStore<Item> getInventory()
+	{	return inventory;	}
+
+	/** 
+	 * Display the first item and last item of the soft tree in lexical order.
+	 */
+	public void showFirstAndLastItem(String message)
+	{
+		lockStore();
+		try
+		{
+			System.out.println("\n" + message);
+
+			// TODO: Modify the protected methods findMin() and findMax() to implement lazy deletion. 
+			//       Searches from the root of the tree and returns the minimum and maximum node that 
+			//       has NOT been "deleted". 
+			try
+			{
+				Item min = inventory.findMin();
+				System.out.println ( "First item: " + min.toString());
+			} 
+			catch (Exception NoSuchElementException)
+			{
+				System.out.println("Warning: minimum element not found!");
+			}
+
+			try
+			{
+				Item max = inventory.findMax();
+				System.out.println ( "Last item: " + max.toString());
+			} 
+			catch (Exception NoSuchElementException)
+			{
+				System.out.println("Warning: maximum element not found!");
+			}
+		}
+		finally
+		{
+			unlockStore();
+		}
 	}
 
 	/**
@@ -185,29 +798,37 @@ public class SuperMarket
 	 */
 	protected void displayInventoryState(String message, boolean showTree)
 	{
-		System.out.println("\n" + message);
-		System.out.println("\"hard\" number of unique items (i.e. mSizeHard) = " + inventory.sizeHard());
-		System.out.println("\"soft\" number of unique items (i.e. mSize) = " + inventory.size());
+		lockStore();
+		try
+		{
+			System.out.println("\n" + message);
+			System.out.println("\"hard\" number of unique items (i.e. mSizeHard) = " + inventory.sizeHard());
+			System.out.println("\"soft\" number of unique items (i.e. mSize) = " + inventory.size());
 
-		if (!showTree)
-			return;
+			if (!showTree)
+				return;
 
-		System.out.println( "\nTesting traversing \"hard\" inventory:");
+			System.out.println( "\nTesting traversing \"hard\" inventory:");
 
-		// TODO: First, rename the public/private pair traverse() method of FHsearch_tree to traverseHard() method.
-		//       Then, reuse this public/private pair of methods to traverses the tree
-		//       and displays all the nodes.
-		// NOTE: Here, we call the public version.
-		inventory.traverseHard(printObject);
+			// TODO: First, rename the public/private pair traverse() method of FHsearch_tree to traverseHard() method.
+			//       Then, reuse this public/private pair of methods to traverses the tree
+			//       and displays all the nodes.
+			// NOTE: Here, we call the public version.
+			inventory.traverseHard(printObject);
 
 
-		System.out.println( "\n\nTesting traversing \"soft\" inventory:");
+			System.out.println( "\n\nTesting traversing \"soft\" inventory:");
 
-		// TODO: Define a public/private pair of methods that traverses the tree
-		//       and displays only nodes that have not been lazily deleted. 
-		// NOTE: Here, we call the public version.
-		inventory.traverseSoft(printObject);
-		System.out.println("\n");
+			// TODO: Define a public/private pair of methods that traverses the tree
+			//       and displays only nodes that have not been lazily deleted. 
+			// NOTE: Here, we call the public version.
+			inventory.traverseSoft(printObject);
+			System.out.println("\n");
+		}
+		finally
+		{
+			unlockStore();
+		}
 	}
 
 	public static void main(String[] args) 
@@ -310,7 +931,7 @@ public class SuperMarket
 
 		// Display the inventory
 		market.displayInventoryState("\nState of inventory before cleanup:", true);
-		market.inventory.collectGarbage();
+		market.collectGarbage();
 		market.displayInventoryState("\nFinal state of inventory after cleanup:", true);
 
 		// flush the error stream
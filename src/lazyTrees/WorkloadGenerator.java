@@ -0,0 +1,174 @@
+package lazyTrees;
+
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Writes synthetic inventory logs in the format of resources/inventory_log.txt
+ * ("add name" / "buy name" per line). The same arguments and seed always
+ * produce the same file.
+ *
+ * Usage: WorkloadGenerator out lines keys order buyRatio outOfStockRate [seed] [skew]
+ *   order           sorted, random or zipf: which items are added and bought
+ *   buyRatio        fraction of lines that are buys
+ *   outOfStockRate  fraction of buys that ask for an item with no stock
+ * @author Myron Pow
+ */
+public class WorkloadGenerator {
+    public static final String SORTED = "sorted";
+    public static final String RANDOM = "random";
+    public static final String ZIPF = "zipf";
+
+    // product families so names share prefixes like the real logs do
+    private static final String[] FAMILIES = {
+            "apples", "bread", "cereal", "cheese", "chicken", "juice",
+            "milk", "pasta", "soda", "soup", "tea", "yogurt"
+    };
+
+    // draws before a buy gives up looking for an item with (or without) stock
+    private static final int MAX_TRIES = 16;
+
+    private final String[] names;
+    private final int[] stock;
+    private final String order;
+    private final double buyRatio;
+    private final double outOfStockRate;
+    private final Random random;
+    private final ZipfSampler zipf;
+    private final int[] rankToKey;
+    private int nextSorted;
+
+    private long adds, buys, outOfStockBuys;
+
+    /**
+     * @param keys number of distinct items
+     * @param order sorted, random or zipf
+     * @param buyRatio fraction of lines that are buys
+     * @param outOfStockRate fraction of buys for an item with no stock
+     * @param seed random seed
+     * @param skew Zipf exponent, only used by zipf order
+     */
+    public WorkloadGenerator(int keys, String order, double buyRatio,
+                             double outOfStockRate, long seed, double skew) {
+        if (keys <= 0 || buyRatio < 0 || buyRatio > 1
+                || outOfStockRate < 0 || outOfStockRate > 1)
+            throw new IllegalArgumentException();
+        if (!order.equals(SORTED) && !order.equals(RANDOM) && !order.equals(ZIPF))
+            throw new IllegalArgumentException("unknown order: " + order);
+
+        this.order = order;
+        this.buyRatio = buyRatio;
+        this.outOfStockRate = outOfStockRate;
+        random = new Random(seed);
+
+        // names in lexical order, so "sorted" adds arrive in tree order
+        String[] unsorted = new String[keys];
+        int width = String.valueOf((keys - 1) / FAMILIES.length).length();
+        for (int key = 0; key < keys; key++)
+            unsorted[key] = FAMILIES[key % FAMILIES.length]
+                    + String.format("%0" + width + "d", key / FAMILIES.length);
+        Arrays.sort(unsorted);
+        names = unsorted;
+        stock = new int[keys];
+
+        // hot ranks are spread over the key space
+        rankToKey = new int[keys];
+        for (int i = 0; i < keys; i++)
+            rankToKey[i] = i;
+        for (int i = keys - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = rankToKey[i];
+            rankToKey[i] = rankToKey[j];
+            rankToKey[j] = tmp;
+        }
+        zipf = order.equals(ZIPF) ? new ZipfSampler(keys, skew, random) : null;
+    }
+
+    /**
+     * @return next log line
+     */
+    public String nextLine() {
+        if (random.nextDouble() < buyRatio) {
+            boolean wantEmpty = random.nextDouble() < outOfStockRate;
+            for (int tries = 0; tries < MAX_TRIES; tries++) {
+                int key = wantEmpty ? random.nextInt(names.length) : nextKey();
+                if ((stock[key] == 0) == wantEmpty)
+                    return buy(key);
+            }
+            if (wantEmpty)
+                return buy(nextKey());
+            // nothing in stock was drawn, restock instead
+        }
+        int key = nextKey();
+        stock[key]++;
+        adds++;
+        return "add " + names[key];
+    }
+
+    /**
+     * Writes lines to a file
+     * @param path output file
+     * @param lines number of lines
+     */
+    public void write(String path, long lines) throws IOException {
+        BufferedWriter out = new BufferedWriter(new FileWriter(path), 1 << 16);
+        try {
+            for (long i = 0; i < lines; i++) {
+                out.write(nextLine());
+                out.newLine();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Summary of what was written, the rates are approximate targets
+     */
+    public String summary() {
+        return String.format("adds = %d, buys = %d, out of stock buys = %d",
+                adds, buys, outOfStockBuys);
+    }
+
+    private String buy(int key) {
+        buys++;
+        if (stock[key] == 0)
+            outOfStockBuys++;
+        else
+            stock[key]--;
+        return "buy " + names[key];
+    }
+
+    private int nextKey() {
+        if (order.equals(SORTED)) {
+            int key = nextSorted;
+            nextSorted = (nextSorted + 1) % names.length;
+            return key;
+        }
+        if (order.equals(ZIPF))
+            return rankToKey[zipf.next()];
+        return random.nextInt(names.length);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 6) {
+            System.out.println("Usage: WorkloadGenerator out lines keys sorted|random|zipf "
+                    + "buyRatio outOfStockRate [seed] [skew]");
+            return;
+        }
+        String path = args[0];
+        long lines = Long.parseLong(args[1]);
+        int keys = Integer.parseInt(args[2]);
+        long seed = (args.length > 6) ? Long.parseLong(args[6]) : 1;
+        double skew = (args.length > 7) ? Double.parseDouble(args[7]) : 1.0;
+
+        WorkloadGenerator generator = new WorkloadGenerator(keys, args[3],
+                Double.parseDouble(args[4]), Double.parseDouble(args[5]), seed, skew);
+        generator.write(path, lines);
+        System.out.printf("Wrote %d lines to %s (%s)%n", lines, path, generator.summary());
+    }
+}
@@ -0,0 +1,44 @@
+package lazyTrees;
+
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws ranks 0..n-1 with probability proportional to 1 / (rank + 1)^s.
+ * s = 0 is uniform; around 1 a few ranks get most of the draws.
+ * @author Myron Pow
+ */
+public class ZipfSampler {
+    private final double[] cdf;
+    private final Random random;
+
+    /**
+     * @param n number of ranks
+     * @param s skew exponent, 0 or more
+     * @param random source of randomness, seed it for repeatable draws
+     */
+    public ZipfSampler(int n, double s, Random random) {
+        if (n <= 0 || s < 0)
+            throw new IllegalArgumentException();
+        this.random = random;
+        cdf = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, s);
+            cdf[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++)
+            cdf[rank] /= sum;
+    }
+
+    /**
+     * @return next rank, 0 being the most frequent
+     */
+    public int next() {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        if (index < 0)
+            index = -index - 1;
+        return Math.min(index, cdf.length - 1);
+    }
+}